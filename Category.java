@@ -0,0 +1,84 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Category enum lists the device categories the inventory accepts.
+ * Each constant carries the display name used by the devices and the menu,
+ * and the registry maps a display name back to its constant in O(1) time.
+ */
+public enum Category {
+    TV("TV"),
+    SMART_PHONE("Smart Phone"),
+    HEADPHONES("Headphones"),
+    LAPTOP("Laptop"),
+    SMART_WATCH("Smart Watch");
+
+    private static final Map<String, Category> BY_DISPLAY_NAME = new HashMap<>();
+
+    static {
+        for (Category category : values()) {
+            BY_DISPLAY_NAME.put(category.displayName, category);
+        }
+    }
+
+    private final String displayName;
+
+    /**
+     * Constructs a category with the given display name.
+     * Time Complexity: O(1)
+     *
+     * @param displayName The name shown to users, e.g. "Smart Phone".
+     */
+    Category(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Gets the display name of this category.
+     * Time Complexity: O(1)
+     *
+     * @return The display name, e.g. "Smart Phone".
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Creates a device in this category. Every category uses the same compact
+     * device class, which refers to this constant instead of copying its
+     * display name.
+     * Time Complexity: O(1)
+     *
+     * @param name     The name of the device.
+     * @param price    The price of the device.
+     * @param quantity The quantity of the device in inventory.
+     * @return A new device in this category.
+     * @throws IllegalArgumentException if the quantity is negative.
+     */
+    public ReservableDevice createDevice(String name, double price, int quantity) {
+        return new CompactDevice(this, name, price, quantity);
+    }
+
+    /**
+     * Looks up the category with the given display name.
+     * Time Complexity: O(1) - A single hash lookup.
+     *
+     * @param displayName The display name to look up.
+     * @return The matching category, or null if the name is not an allowed
+     *         category.
+     */
+    public static Category fromDisplayName(String displayName) {
+        return displayName == null ? null : BY_DISPLAY_NAME.get(displayName);
+    }
+
+    /**
+     * Returns the display name, so lists of categories print the way users
+     * type them.
+     *
+     * @return The display name of this category.
+     */
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,862 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The ColumnarInventory class is an alternative storage mode for scan heavy
+ * analytics. Instead of one object per device, it keeps prices, quantities,
+ * reserved units and category ids in parallel primitive arrays, and names in
+ * a side table, so valuation, cheapest lookup and filters run as tight loops
+ * over contiguous memory. The columns grow by whole chunks, which are never
+ * copied or moved once allocated.
+ * Every row has one ReservableDevice view, created with the row. A removal
+ * moves the last row into the freed slot and its view along with it, so a
+ * view keeps pointing at its own device; the view of a removed device keeps
+ * the values it had when it was removed. Views support listeners and
+ * reservations, so an Inventory constructed with a ColumnarInventory copies
+ * the devices it adds into rows and holds their views, and Main selects this
+ * mode with "--columnar".
+ * The stock changes of one view are serialized by the view's monitor; adds,
+ * removals, renames and category changes must be serialized by the owner,
+ * as ConcurrentInventory does with its exclusive lock.
+ * Values are counted in whole cents like Inventory does: rows whose stock
+ * value would not fit are refused, and totals that would overflow throw
+ * instead of wrapping.
+ */
+public class ColumnarInventory {
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Outer arrays are replaced when they grow; views read them without the owner's lock
+    private volatile double[][] prices;
+    private volatile int[][] quantities;
+    private volatile int[][] reserved;
+    private volatile byte[][] categoryIds;
+    private volatile String[][] names;
+    private volatile RowView[][] views;
+    private int size;
+    private final Map<String, Integer> rowsByName;
+
+    /**
+     * Constructs a new, empty ColumnarInventory with a default capacity.
+     * Time Complexity: O(1)
+     */
+    public ColumnarInventory() {
+        this(16);
+    }
+
+    /**
+     * Constructs a new, empty ColumnarInventory able to hold the given number of
+     * devices before its arrays grow.
+     * Time Complexity: O(c) where c is the initial capacity.
+     *
+     * @param initialCapacity The number of rows to allocate up front.
+     */
+    public ColumnarInventory(int initialCapacity) {
+        int chunks = Math.max((Math.max(initialCapacity, 1) + CHUNK_MASK) >>> CHUNK_SHIFT, 1);
+        prices = new double[chunks][];
+        quantities = new int[chunks][];
+        reserved = new int[chunks][];
+        categoryIds = new byte[chunks][];
+        names = new String[chunks][];
+        views = new RowView[chunks][];
+        ensureCapacity(initialCapacity);
+        rowsByName = new HashMap<>(Math.max(initialCapacity, 1) * 4 / 3 + 1);
+    }
+
+    /**
+     * Returns the number of devices in the inventory.
+     * Time Complexity: O(1)
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies a device into a new row. Devices whose category is not allowed,
+     * whose quantity is negative, whose stock value does not fit in whole
+     * cents, or whose name is already taken (ignoring case), are rejected.
+     * Time Complexity: O(1) amortized.
+     *
+     * @param device The device to copy into the inventory.
+     * @return true if the device was added, false if it was rejected.
+     */
+    public boolean addDevice(Device device) {
+        return store(device) != null;
+    }
+
+    /**
+     * Adds a new row with the given values. Negative quantities, stock values
+     * that do not fit in whole cents and names already taken (ignoring case)
+     * are rejected.
+     * Time Complexity: O(1) amortized.
+     *
+     * @param category The category of the device.
+     * @param name     The name of the device.
+     * @param price    The price of the device.
+     * @param quantity The quantity in stock.
+     * @return true if the device was added, false if it was rejected.
+     */
+    public boolean addDevice(Category category, String name, double price, int quantity) {
+        return addRow(category, name, price, quantity) != null;
+    }
+
+    /**
+     * Copies the category, name, price and quantity of a device into a new
+     * row and returns the row's view, which the caller holds instead of the
+     * device.
+     * Time Complexity: O(1) amortized.
+     *
+     * @param device The device to copy into the inventory.
+     * @return The view of the new row, or null if the device was rejected.
+     */
+    ReservableDevice store(Device device) {
+        Category category = Category.fromDisplayName(device.getCategory());
+        if (category == null) {
+            return null;
+        }
+        return addRow(category, device.getName(), device.getPrice(), device.getQuantity());
+    }
+
+    /**
+     * Copies every device of the collection into the inventory.
+     * Time Complexity: O(k) amortized, where k is the size of the collection.
+     *
+     * @param devices The devices to copy.
+     * @return The number of devices added.
+     */
+    public int addAll(Collection<? extends Device> devices) {
+        ensureCapacity(size + devices.size());
+        int added = 0;
+        for (Device device : devices) {
+            if (addDevice(device)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Removes a device by name. The last row is moved into the freed slot,
+     * together with its view; the view of the removed device keeps its last
+     * values, detached from the columns.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The name of the device to remove.
+     * @return true if a device was removed, false if it was not found.
+     */
+    public boolean removeDevice(String deviceName) {
+        Integer row = rowsByName.remove(nameKey(deviceName));
+        if (row == null) {
+            return false;
+        }
+        viewAt(row).detach();
+        int last = size - 1;
+        if (row != last) {
+            RowView moved = viewAt(last);
+            moved.moveTo(row);
+            rowsByName.put(nameKey(names[row >>> CHUNK_SHIFT][row & CHUNK_MASK]), row);
+        }
+        names[last >>> CHUNK_SHIFT][last & CHUNK_MASK] = null;
+        views[last >>> CHUNK_SHIFT][last & CHUNK_MASK] = null;
+        size = last;
+        return true;
+    }
+
+    /**
+     * Checks if a device exists based on its name, ignoring case.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The name of the device to be checked.
+     * @return true if the device exists, false otherwise.
+     */
+    public boolean deviceExists(String deviceName) {
+        return rowsByName.containsKey(nameKey(deviceName));
+    }
+
+    /**
+     * Returns the view of the device with the given name, ignoring case.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The name of the device to look up.
+     * @return The view of the device row, or null if there is none.
+     */
+    public ReservableDevice getDevice(String deviceName) {
+        Integer row = rowsByName.get(nameKey(deviceName));
+        return row == null ? null : viewAt(row);
+    }
+
+    /**
+     * Finds the device with the minimum price. Ties go to the earliest row.
+     * Time Complexity: O(n) - A single pass over the price column.
+     *
+     * @return The view of the cheapest device, or null if the inventory is empty.
+     */
+    public Device findCheapestDevice() {
+        if (size == 0) {
+            return null;
+        }
+        int cheapest = 0;
+        double cheapestPrice = prices[0][0];
+        for (int chunk = 0, base = 0; base < size; chunk++, base += CHUNK_SIZE) {
+            double[] chunkPrices = prices[chunk];
+            int length = Math.min(CHUNK_SIZE, size - base);
+            for (int i = 0; i < length; i++) {
+                if (chunkPrices[i] < cheapestPrice) {
+                    cheapestPrice = chunkPrices[i];
+                    cheapest = base + i;
+                }
+            }
+        }
+        return viewAt(cheapest);
+    }
+
+    /**
+     * Calculates the total value of all the devices, counting prices in whole
+     * cents like Inventory does.
+     * Time Complexity: O(n) - A single pass over the price and quantity columns.
+     *
+     * @return The total inventory value in cents.
+     * @throws ArithmeticException if the total does not fit in a long.
+     */
+    public long calculateTotalInventoryValueInCents() {
+        return valueInCents(-1);
+    }
+
+    /**
+     * Calculates the total value of all the devices.
+     * Time Complexity: O(n)
+     *
+     * @return The total inventory value as a double.
+     * @throws ArithmeticException if the total does not fit in whole cents.
+     */
+    public double calculateTotalInventoryValue() {
+        return calculateTotalInventoryValueInCents() / 100.0;
+    }
+
+    /**
+     * Calculates the total value of the devices in one category, in whole
+     * cents.
+     * Time Complexity: O(n) - A single pass over the columns.
+     *
+     * @param category The category to value.
+     * @return The value of the category in cents.
+     * @throws ArithmeticException if the value does not fit in a long.
+     */
+    public long calculateCategoryValueInCents(Category category) {
+        return valueInCents(category.ordinal());
+    }
+
+    /**
+     * Calculates the total value of the devices in one category.
+     * Time Complexity: O(n) - A single pass over the columns.
+     *
+     * @param category The category to value.
+     * @return The value of the category as a double.
+     * @throws ArithmeticException if the value does not fit in whole cents.
+     */
+    public double calculateCategoryValue(Category category) {
+        return calculateCategoryValueInCents(category) / 100.0;
+    }
+
+    /**
+     * Returns the devices of one category, in row order.
+     * Time Complexity: O(n) - A single pass over the category column.
+     *
+     * @param category The category to filter by.
+     * @return The views of the matching rows.
+     */
+    public List<Device> findDevicesInCategory(Category category) {
+        byte id = (byte) category.ordinal();
+        List<Device> result = new ArrayList<>();
+        for (int chunk = 0, base = 0; base < size; chunk++, base += CHUNK_SIZE) {
+            byte[] chunkIds = categoryIds[chunk];
+            int length = Math.min(CHUNK_SIZE, size - base);
+            for (int i = 0; i < length; i++) {
+                if (chunkIds[i] == id) {
+                    result.add(views[chunk][i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the devices whose price lies within the given range, both ends
+     * inclusive, in row order.
+     * Time Complexity: O(n) - A single pass over the price column.
+     *
+     * @param minPrice The lowest price to include.
+     * @param maxPrice The highest price to include.
+     * @return The views of the matching rows.
+     */
+    public List<Device> findDevicesInPriceRange(double minPrice, double maxPrice) {
+        List<Device> result = new ArrayList<>();
+        for (int chunk = 0, base = 0; base < size; chunk++, base += CHUNK_SIZE) {
+            double[] chunkPrices = prices[chunk];
+            int length = Math.min(CHUNK_SIZE, size - base);
+            for (int i = 0; i < length; i++) {
+                if (chunkPrices[i] >= minPrice && chunkPrices[i] <= maxPrice) {
+                    result.add(views[chunk][i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the devices whose quantity is at or below a threshold, in row
+     * order.
+     * Time Complexity: O(n) - A single pass over the quantity column.
+     *
+     * @param threshold The highest quantity to include.
+     * @return The views of the matching rows.
+     */
+    public List<Device> findLowStockDevices(int threshold) {
+        List<Device> result = new ArrayList<>();
+        for (int chunk = 0, base = 0; base < size; chunk++, base += CHUNK_SIZE) {
+            int[] chunkQuantities = quantities[chunk];
+            int length = Math.min(CHUNK_SIZE, size - base);
+            for (int i = 0; i < length; i++) {
+                if (chunkQuantities[i] <= threshold) {
+                    result.add(views[chunk][i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a new row and its view.
+     * Time Complexity: O(1) amortized.
+     *
+     * @param category The category of the device.
+     * @param name     The name of the device.
+     * @param price    The price of the device.
+     * @param quantity The quantity in stock.
+     * @return The view of the new row, or null if the device was rejected.
+     */
+    private RowView addRow(Category category, String name, double price, int quantity) {
+        String key = nameKey(name);
+        if (quantity < 0 || !Inventory.fitsInCents(price, quantity) || rowsByName.containsKey(key)) {
+            return null;
+        }
+        ensureCapacity(size + 1);
+        int chunk = size >>> CHUNK_SHIFT;
+        int slot = size & CHUNK_MASK;
+        prices[chunk][slot] = price;
+        quantities[chunk][slot] = quantity;
+        reserved[chunk][slot] = 0;
+        categoryIds[chunk][slot] = (byte) category.ordinal();
+        names[chunk][slot] = name;
+        RowView view = new RowView(size);
+        views[chunk][slot] = view;
+        rowsByName.put(key, size);
+        size++;
+        return view;
+    }
+
+    /**
+     * Sums the stock values of every row, or of the rows of one category.
+     * Time Complexity: O(n) - A single pass over the columns.
+     *
+     * @param categoryId The ordinal of the category, or -1 for every row.
+     * @return The value in cents.
+     * @throws ArithmeticException if the value does not fit in a long.
+     */
+    private long valueInCents(int categoryId) {
+        long total = 0;
+        for (int chunk = 0, base = 0; base < size; chunk++, base += CHUNK_SIZE) {
+            double[] chunkPrices = prices[chunk];
+            int[] chunkQuantities = quantities[chunk];
+            byte[] chunkIds = categoryIds[chunk];
+            int length = Math.min(CHUNK_SIZE, size - base);
+            for (int i = 0; i < length; i++) {
+                if (categoryId < 0 || chunkIds[i] == categoryId) {
+                    total = Math.addExact(total, Inventory.valueInCents(chunkPrices[i], chunkQuantities[i]));
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the view of a row.
+     * Time Complexity: O(1)
+     *
+     * @param row The row index.
+     * @return The view of the row.
+     */
+    private RowView viewAt(int row) {
+        return views[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    /**
+     * Makes sure the columns can hold the given number of rows, allocating the
+     * missing chunks. Only the outer arrays are copied when they grow.
+     * Time Complexity: O(c) where c is the number of rows allocated.
+     *
+     * @param capacity The number of rows needed.
+     */
+    private void ensureCapacity(int capacity) {
+        int chunks = (capacity + CHUNK_MASK) >>> CHUNK_SHIFT;
+        if (chunks > prices.length) {
+            int length = Math.max(chunks, prices.length * 2);
+            // Both outer arrays share the existing chunks, so views reading either find their row
+            double[][] grownPrices = Arrays.copyOf(prices, length);
+            int[][] grownQuantities = Arrays.copyOf(quantities, length);
+            int[][] grownReserved = Arrays.copyOf(reserved, length);
+            byte[][] grownCategoryIds = Arrays.copyOf(categoryIds, length);
+            String[][] grownNames = Arrays.copyOf(names, length);
+            RowView[][] grownViews = Arrays.copyOf(views, length);
+            prices = grownPrices;
+            quantities = grownQuantities;
+            reserved = grownReserved;
+            categoryIds = grownCategoryIds;
+            names = grownNames;
+            views = grownViews;
+        }
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            if (prices[chunk] == null) {
+                prices[chunk] = new double[CHUNK_SIZE];
+                quantities[chunk] = new int[CHUNK_SIZE];
+                reserved[chunk] = new int[CHUNK_SIZE];
+                categoryIds[chunk] = new byte[CHUNK_SIZE];
+                names[chunk] = new String[CHUNK_SIZE];
+                views[chunk] = new RowView[CHUNK_SIZE];
+            }
+        }
+    }
+
+    /**
+     * Normalizes a device name into the key used by the name index.
+     * Time Complexity: O(k) where k is the length of the name.
+     *
+     * @param deviceName The device name.
+     * @return The lower-case key for the name.
+     */
+    private static String nameKey(String deviceName) {
+        return deviceName.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Checks that a unit count is not negative.
+     * Time Complexity: O(1)
+     *
+     * @param units The unit count.
+     * @throws IllegalArgumentException if units is negative.
+     */
+    private static void requireNonNegative(int units) {
+        if (units < 0) {
+            throw new IllegalArgumentException("Units must not be negative: " + units);
+        }
+    }
+
+    /**
+     * The ReservableDevice view of one row. Its row changes when a removal
+     * moves it; once its own device is removed, it answers from a detached
+     * CompactDevice holding the device's last values.
+     * Stock changes and moves take the view's monitor, so the listener is told
+     * about one change at a time, each as a consistent pair of old and new
+     * values.
+     */
+    private final class RowView implements ReservableDevice {
+        private volatile int row;
+        private volatile CompactDevice detached;
+        private volatile DeviceListener listener;
+
+        /**
+         * Constructs a view over the given row.
+         * Time Complexity: O(1)
+         *
+         * @param row The row index.
+         */
+        RowView(int row) {
+            this.row = row;
+        }
+
+        /**
+         * Gets the category of the device.
+         * Time Complexity: O(1)
+         *
+         * @return The category display name.
+         */
+        @Override
+        public String getCategory() {
+            int current = row;
+            return current < 0 ? detached.getCategory()
+                    : CATEGORIES[categoryIds[current >>> CHUNK_SHIFT][current & CHUNK_MASK]].getDisplayName();
+        }
+
+        /**
+         * Gets the name of the device.
+         * Time Complexity: O(1)
+         *
+         * @return The device name.
+         */
+        @Override
+        public String getName() {
+            int current = row;
+            return current < 0 ? detached.getName() : names[current >>> CHUNK_SHIFT][current & CHUNK_MASK];
+        }
+
+        /**
+         * Gets the price of the device.
+         * Time Complexity: O(1)
+         *
+         * @return The device price.
+         */
+        @Override
+        public double getPrice() {
+            int current = row;
+            return current < 0 ? detached.getPrice() : prices[current >>> CHUNK_SHIFT][current & CHUNK_MASK];
+        }
+
+        /**
+         * Gets the quantity of the device, reserved units included.
+         * Time Complexity: O(1)
+         *
+         * @return The device quantity.
+         */
+        @Override
+        public int getQuantity() {
+            int current = row;
+            return current < 0 ? detached.getQuantity() : quantities[current >>> CHUNK_SHIFT][current & CHUNK_MASK];
+        }
+
+        /**
+         * Gets the number of units reserved and not yet committed or released.
+         * Time Complexity: O(1)
+         *
+         * @return The reserved quantity.
+         */
+        @Override
+        public int getReservedQuantity() {
+            int current = row;
+            return current < 0 ? detached.getReservedQuantity() : reserved[current >>> CHUNK_SHIFT][current & CHUNK_MASK];
+        }
+
+        /**
+         * Gets the number of units that can still be reserved or removed.
+         * Time Complexity: O(1) - Both counts are read under the view's monitor.
+         *
+         * @return The quantity minus the reserved units.
+         */
+        @Override
+        public synchronized int getAvailableQuantity() {
+            int current = row;
+            if (current < 0) {
+                return detached.getAvailableQuantity();
+            }
+            int chunk = current >>> CHUNK_SHIFT;
+            int slot = current & CHUNK_MASK;
+            return quantities[chunk][slot] - reserved[chunk][slot];
+        }
+
+        /**
+         * Moves the device to another category. The listener, if any, is told
+         * first so it can update or veto the change.
+         * Time Complexity: O(1) plus the cost of the listener.
+         *
+         * @param category The new category display name.
+         * @throws IllegalArgumentException if the category is not allowed.
+         */
+        @Override
+        public void setCategory(String category) {
+            int current = row;
+            if (current < 0) {
+                detached.setCategory(category);
+                return;
+            }
+            Category target = Category.fromDisplayName(category);
+            if (target == null) {
+                throw new IllegalArgumentException("Category '" + category + "' is not allowed.");
+            }
+            DeviceListener owner = listener;
+            if (owner != null) {
+                owner.categoryChanging(this, category);
+            }
+            categoryIds[current >>> CHUNK_SHIFT][current & CHUNK_MASK] = (byte) target.ordinal();
+        }
+
+        /**
+         * Renames the device and re-keys the name index. The listener, if any,
+         * is told first so it can update or veto the change.
+         * Time Complexity: O(1) plus the cost of the listener.
+         *
+         * @param name The new device name.
+         * @throws IllegalArgumentException if another device already has the name.
+         */
+        @Override
+        public void setName(String name) {
+            int current = row;
+            if (current < 0) {
+                detached.setName(name);
+                return;
+            }
+            String oldKey = nameKey(getName());
+            String newKey = nameKey(name);
+            boolean rekey = !oldKey.equals(newKey);
+            if (rekey && rowsByName.containsKey(newKey)) {
+                throw new IllegalArgumentException("A device with name '" + name + "' already exists.");
+            }
+            DeviceListener owner = listener;
+            if (owner != null) {
+                owner.nameChanging(this, name);
+            }
+            if (rekey) {
+                rowsByName.remove(oldKey);
+                rowsByName.put(newKey, current);
+            }
+            names[current >>> CHUNK_SHIFT][current & CHUNK_MASK] = name;
+        }
+
+        /**
+         * Sets the price of the device. The listener, if any, is asked first
+         * and told afterwards.
+         * Time Complexity: O(1) plus the cost of the listener.
+         *
+         * @param price The new price.
+         * @throws ArithmeticException if the stock value would not fit in
+         *                             whole cents.
+         */
+        @Override
+        public synchronized void setPrice(double price) {
+            int current = row;
+            if (current < 0) {
+                detached.setPrice(price);
+                return;
+            }
+            changeStock(current, price, quantities[current >>> CHUNK_SHIFT][current & CHUNK_MASK], 0);
+        }
+
+        /**
+         * Sets the quantity of the device, refusing a quantity below the
+         * reserved units. The listener, if any, is asked first and told
+         * afterwards.
+         * Time Complexity: O(1) plus the cost of the listener.
+         *
+         * @param quantity The new quantity.
+         * @throws IllegalArgumentException if the quantity is negative.
+         * @throws IllegalStateException if more units are reserved.
+         * @throws ArithmeticException if the stock value would not fit in
+         *                             whole cents.
+         */
+        @Override
+        public synchronized void setQuantity(int quantity) {
+            requireNonNegative(quantity);
+            int current = row;
+            if (current < 0) {
+                detached.setQuantity(quantity);
+                return;
+            }
+            int units = reserved[current >>> CHUNK_SHIFT][current & CHUNK_MASK];
+            if (quantity < units) {
+                throw new IllegalStateException(units + " units of " + getName()
+                        + " are reserved, more than the quantity " + quantity + ".");
+            }
+            changeStock(current, prices[current >>> CHUNK_SHIFT][current & CHUNK_MASK], quantity, 0);
+        }
+
+        /**
+         * Adds a delta to the quantity, refusing to go below the reserved
+         * units.
+         * Time Complexity: O(1) plus the cost of the listener.
+         *
+         * @param delta The units to add, negative to remove.
+         * @return true if the quantity was changed, false if too few units are
+         *         available or the quantity would overflow.
+         * @throws ArithmeticException if the stock value would not fit in
+         *                             whole cents.
+         */
+        @Override
+        public synchronized boolean adjustQuantity(int delta) {
+            int current = row;
+            if (current < 0) {
+                return detached.adjustQuantity(delta);
+            }
+            int chunk = current >>> CHUNK_SHIFT;
+            int slot = current & CHUNK_MASK;
+            long quantity = (long) quantities[chunk][slot] + delta;
+            if (quantity < reserved[chunk][slot] || quantity > Integer.MAX_VALUE) {
+                return false;
+            }
+            changeStock(current, prices[chunk][slot], (int) quantity, 0);
+            return true;
+        }
+
+        /**
+         * Reserves units if that many are available. Reservations do not
+         * change the stock, so the listener is not told.
+         * Time Complexity: O(1)
+         *
+         * @param units The number of units to reserve.
+         * @return true if the units were reserved, false if too few are available.
+         * @throws IllegalArgumentException if units is negative.
+         */
+        @Override
+        public synchronized boolean reserve(int units) {
+            requireNonNegative(units);
+            int current = row;
+            if (current < 0) {
+                return detached.reserve(units);
+            }
+            int chunk = current >>> CHUNK_SHIFT;
+            int slot = current & CHUNK_MASK;
+            if (quantities[chunk][slot] - reserved[chunk][slot] < units) {
+                return false;
+            }
+            reserved[chunk][slot] += units;
+            return true;
+        }
+
+        /**
+         * Returns reserved units to the available stock.
+         * Time Complexity: O(1)
+         *
+         * @param units The number of reserved units to release.
+         * @throws IllegalArgumentException if units is negative.
+         * @throws IllegalStateException if fewer units are reserved.
+         */
+        @Override
+        public synchronized void release(int units) {
+            requireNonNegative(units);
+            int current = row;
+            if (current < 0) {
+                detached.release(units);
+                return;
+            }
+            requireReserved(current, units);
+            reserved[current >>> CHUNK_SHIFT][current & CHUNK_MASK] -= units;
+        }
+
+        /**
+         * Takes reserved units out of the stock. The listener, if any, is
+         * asked first and told afterwards.
+         * Time Complexity: O(1) plus the cost of the listener.
+         *
+         * @param units The number of reserved units to commit.
+         * @throws IllegalArgumentException if units is negative.
+         * @throws IllegalStateException if fewer units are reserved.
+         */
+        @Override
+        public synchronized void commit(int units) {
+            requireNonNegative(units);
+            int current = row;
+            if (current < 0) {
+                detached.commit(units);
+                return;
+            }
+            requireReserved(current, units);
+            int chunk = current >>> CHUNK_SHIFT;
+            int slot = current & CHUNK_MASK;
+            changeStock(current, prices[chunk][slot], quantities[chunk][slot] - units, units);
+        }
+
+        /**
+         * Attaches the listener that is told about changes of the device.
+         * Time Complexity: O(1)
+         *
+         * @param listener The listener to notify, or null to detach.
+         */
+        @Override
+        public void setListener(DeviceListener listener) {
+            CompactDevice copy = detached;
+            if (copy != null) {
+                copy.setListener(listener);
+            }
+            this.listener = listener;
+        }
+
+        /**
+         * Writes a new price and quantity to the row, asking the listener
+         * first and telling it afterwards. Must be called holding the view's
+         * monitor.
+         * Time Complexity: O(1) plus the cost of the listener.
+         *
+         * @param current     The row of the view.
+         * @param newPrice    The price after the change.
+         * @param newQuantity The quantity after the change.
+         * @param committed   The reserved units the change takes out of stock.
+         * @throws ArithmeticException if the stock value would not fit in
+         *                             whole cents.
+         */
+        private void changeStock(int current, double newPrice, int newQuantity, int committed) {
+            int chunk = current >>> CHUNK_SHIFT;
+            int slot = current & CHUNK_MASK;
+            double oldPrice = prices[chunk][slot];
+            int oldQuantity = quantities[chunk][slot];
+            Inventory.valueInCents(newPrice, newQuantity); // Totals are exact only if every row fits
+            DeviceListener owner = listener;
+            if (owner != null) {
+                owner.stockChanging(this, newPrice, newQuantity);
+            }
+            prices[chunk][slot] = newPrice;
+            quantities[chunk][slot] = newQuantity;
+            reserved[chunk][slot] -= committed;
+            if (owner != null) {
+                owner.stockChanged(this, oldPrice, oldQuantity, newPrice, newQuantity);
+            }
+        }
+
+        /**
+         * Checks that at least the given number of units is reserved.
+         * Time Complexity: O(1)
+         *
+         * @param current The row of the view.
+         * @param units   The unit count.
+         * @throws IllegalStateException if fewer units are reserved.
+         */
+        private void requireReserved(int current, int units) {
+            int held = reserved[current >>> CHUNK_SHIFT][current & CHUNK_MASK];
+            if (units > held) {
+                throw new IllegalStateException("Only " + held + " units of " + getName() + " are reserved.");
+            }
+        }
+
+        /**
+         * Moves the view and its values to another row, the slot freed by a
+         * removal.
+         * Time Complexity: O(1)
+         *
+         * @param target The row to move to.
+         */
+        private synchronized void moveTo(int target) {
+            int from = row;
+            int fromChunk = from >>> CHUNK_SHIFT;
+            int fromSlot = from & CHUNK_MASK;
+            int chunk = target >>> CHUNK_SHIFT;
+            int slot = target & CHUNK_MASK;
+            prices[chunk][slot] = prices[fromChunk][fromSlot];
+            quantities[chunk][slot] = quantities[fromChunk][fromSlot];
+            reserved[chunk][slot] = reserved[fromChunk][fromSlot];
+            categoryIds[chunk][slot] = categoryIds[fromChunk][fromSlot];
+            names[chunk][slot] = names[fromChunk][fromSlot];
+            views[chunk][slot] = this;
+            row = target;
+        }
+
+        /**
+         * Copies the values of the device out of the columns, so the view
+         * stays usable after its row is freed. Reservations are not carried
+         * over; they should be settled before a device is removed.
+         * Time Complexity: O(1)
+         */
+        private synchronized void detach() {
+            CompactDevice copy = new CompactDevice(CATEGORIES[categoryIds[row >>> CHUNK_SHIFT][row & CHUNK_MASK]],
+                    getName(), getPrice(), getQuantity());
+            copy.setListener(listener);
+            detached = copy;
+            row = -1;
+        }
+    }
+}
@@ -0,0 +1,769 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The CommandProcessor class executes the commands of the inventory line
+ * protocol against an Inventory and writes plain-text replies, with no menu or
+ * console output. It is used by InventoryServer for network clients and by
+ * the scripted batch mode of Main.
+ * A command is one line whose fields are separated by tabs, so device names
+ * may contain spaces. The keyword is not case-sensitive:
+ * ADD category name price quantity; REMOVE name; GET name;
+ * UPDATE name price quantity, where an empty field or "-" keeps the current
+ * value; RESTOCK name ADD|REMOVE quantity;
+ * BATCH action name value [action name value ...], where action is ADD or
+ * REMOVE with a quantity, PRICE with a price or QUANTITY with a quantity,
+ * applied in order and atomically by applyBatch; LIST; CHEAPEST; SORT;
+ * PAGE NAME|PRICE size [category|- [after-price after-name]], which returns
+ * one page of a listing through Inventory.getPage;
+ * TOP ranking k [category], where ranking is a Ranking constant such as
+ * CHEAPEST or MOST_VALUABLE; PREFIX text [limit]; SEARCH text [limit], which
+ * finds names containing the text; VALUE [category];
+ * EXPORT [TEXT|CSV|JSON_LINES]; EXPORT_CATEGORIES [TEXT|CSV|JSON_LINES], which
+ * writes one file per category and a summary to CATEGORY_EXPORT_DIRECTORY.
+ * Lines longer than MAX_LINE_LENGTH characters are answered with ERR; readLine
+ * reads a line without buffering more than that, so a client cannot exhaust
+ * the memory by never ending a line.
+ * Every reply starts with OK or ERR, followed by a tab and the result or the
+ * error message. Commands that return devices reply OK and the number of
+ * devices, followed by one line per device holding its category, name, price
+ * and quantity separated by tabs. BATCH replies OK and the number of
+ * operations, followed by one line per operation holding its status
+ * (a StockOperationResult.Status), the device name and the resulting price
+ * and quantity. PAGE replies like a device list, but when there is a next
+ * page its OK line also holds the after-price and after-name to send back
+ * for that page; they are a sort key rather than a position, so the
+ * processor keeps no state between pages.
+ * A CommandProcessor has no state of its own, so one instance can serve any
+ * number of threads when the inventory is a ConcurrentInventory.
+ */
+public class CommandProcessor {
+
+    /** Number of devices PREFIX and SEARCH return when no limit is given. */
+    static final int DEFAULT_SEARCH_LIMIT = 100;
+
+    /** Directory EXPORT_CATEGORIES writes to, relative to the working directory. */
+    static final String CATEGORY_EXPORT_DIRECTORY = "inventory-by-category";
+
+    /** Length of the longest command line that is executed, in characters. */
+    static final int MAX_LINE_LENGTH = 8192;
+
+    private final Inventory inventory;
+
+    /**
+     * Constructs a processor for the given inventory.
+     * Time Complexity: O(1)
+     *
+     * @param inventory The inventory the commands are executed against.
+     */
+    public CommandProcessor(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    /**
+     * Executes every command read from a script and writes the replies, one
+     * per command, in order. Blank lines and lines starting with # are
+     * skipped.
+     * Time Complexity: O(c log n) where c is the number of commands, plus the
+     * cost of LIST, SORT and EXPORT commands.
+     *
+     * @param in  The script.
+     * @param out Where the replies are written.
+     * @return The number of commands executed and the number that failed.
+     * @throws IOException if the script cannot be read or a reply written.
+     */
+    public ScriptResult executeScript(BufferedReader in, Appendable out) throws IOException {
+        int executed = 0;
+        int failed = 0;
+        String line;
+        while ((line = readLine(in)) != null) {
+            if (line.isEmpty() || line.charAt(0) == '#' || line.trim().isEmpty()) {
+                continue;
+            }
+            executed++;
+            if (!execute(line, out)) {
+                failed++;
+            }
+        }
+        return new ScriptResult(executed, failed);
+    }
+
+    /**
+     * Reads one line like BufferedReader.readLine, but keeps at most
+     * MAX_LINE_LENGTH + 1 characters of it; the rest of a longer line is
+     * read and dropped, so execute can still refuse the line as too long.
+     * Time Complexity: O(k) where k is the length of the line.
+     *
+     * @param in The reader.
+     * @return The line without its terminator, cut after MAX_LINE_LENGTH + 1
+     *         characters, or null at the end of the input.
+     * @throws IOException if the line cannot be read.
+     */
+    static String readLine(BufferedReader in) throws IOException {
+        StringBuilder line = null;
+        int c;
+        while ((c = in.read()) != -1) {
+            if (line == null) {
+                line = new StringBuilder();
+            }
+            if (c == '\n') {
+                return line.toString();
+            }
+            if (c == '\r') {
+                in.mark(1);
+                if (in.read() != '\n') {
+                    in.reset();
+                }
+                return line.toString();
+            }
+            if (line.length() <= MAX_LINE_LENGTH) {
+                line.append((char) c);
+            }
+        }
+        return line == null ? null : line.toString();
+    }
+
+    /**
+     * Executes one command and writes its reply. Invalid commands, and
+     * commands the inventory fails on, are answered with an ERR reply rather
+     * than an exception, so one bad command never ends a session.
+     * Time Complexity: O(log n) for commands on one device, O(n) for LIST,
+     * SORT and EXPORT.
+     *
+     * @param line The command line, without the line terminator.
+     * @param out  Where the reply is written.
+     * @return true if the reply is OK, false if it is ERR.
+     * @throws IOException if the reply cannot be written.
+     */
+    public boolean execute(String line, Appendable out) throws IOException {
+        if (line.length() > MAX_LINE_LENGTH) {
+            out.append("ERR\tline longer than ").append(Integer.toString(MAX_LINE_LENGTH))
+                    .append(" characters\n");
+            return false;
+        }
+        String[] fields = line.split("\t", -1);
+        String keyword = fields[0].trim().toUpperCase(Locale.ROOT);
+        try {
+            switch (keyword) {
+                case "ADD":
+                    add(fields, out);
+                    break;
+                case "REMOVE":
+                    remove(fields, out);
+                    break;
+                case "GET":
+                    get(fields, out);
+                    break;
+                case "UPDATE":
+                    update(fields, out);
+                    break;
+                case "RESTOCK":
+                    restock(fields, out);
+                    break;
+                case "BATCH":
+                    batch(fields, out);
+                    break;
+                case "LIST":
+                    requireFields(fields, 1);
+                    writeDevices(inventory.getDevices(), out);
+                    break;
+                case "CHEAPEST":
+                    requireFields(fields, 1);
+                    Device cheapest = inventory.findCheapestDevice();
+                    writeDevices(cheapest == null ? Collections.<Device>emptyList()
+                            : Collections.singletonList(cheapest), out);
+                    break;
+                case "SORT":
+                    requireFields(fields, 1);
+                    writeDevices(inventory.getDevicesSortedByPrice(), out);
+                    break;
+                case "PAGE":
+                    page(fields, out);
+                    break;
+                case "TOP":
+                    top(fields, out);
+                    break;
+                case "PREFIX":
+                case "SEARCH":
+                    search(keyword, fields, out);
+                    break;
+                case "VALUE":
+                    value(fields, out);
+                    break;
+                case "EXPORT":
+                    export(fields, out);
+                    break;
+                case "EXPORT_CATEGORIES":
+                    exportCategories(fields, out);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown command '" + fields[0] + "'");
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            out.append("ERR\t").append(e.getMessage()).append('\n');
+            return false;
+        } catch (RuntimeException e) {
+            // Not the client's fault, but the client still gets its one reply
+            out.append("ERR\t").append(e.getClass().getSimpleName()).append(": ")
+                    .append(String.valueOf(e.getMessage())).append('\n');
+            return false;
+        }
+    }
+
+    /**
+     * Executes ADD category name price quantity.
+     * Time Complexity: O(log n)
+     *
+     * @param fields The command fields.
+     * @param out    Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private void add(String[] fields, Appendable out) throws IOException {
+        requireFields(fields, 5);
+        ReservableDevice device = InventoryImporter.toDevice(Arrays.asList(fields).subList(1, 5));
+        switch (inventory.addDevice(device).getStatus()) {
+            case APPLIED:
+                out.append("OK\n");
+                break;
+            case DUPLICATE_NAME:
+                throw new IllegalArgumentException("a device named '" + device.getName() + "' already exists");
+            case VALUE_TOO_LARGE:
+                throw new IllegalArgumentException("the stock value of '" + device.getName() + "' is too large");
+            case NAME_TOO_LONG:
+                throw new IllegalArgumentException("the name '" + device.getName() + "' is longer than "
+                        + MappedInventory.MAX_NAME_BYTES + " bytes");
+            default:
+                throw new IllegalArgumentException("category '" + device.getCategory() + "' is not allowed");
+        }
+    }
+
+    /**
+     * Executes REMOVE name.
+     * Time Complexity: O(log n)
+     *
+     * @param fields The command fields.
+     * @param out    Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private void remove(String[] fields, Appendable out) throws IOException {
+        requireFields(fields, 2);
+        if (!inventory.removeDevices(Collections.singletonList(fields[1]))[0]) {
+            throw notFound(fields[1]);
+        }
+        out.append("OK\n");
+    }
+
+    /**
+     * Executes GET name.
+     * Time Complexity: O(1)
+     *
+     * @param fields The command fields.
+     * @param out    Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private void get(String[] fields, Appendable out) throws IOException {
+        requireFields(fields, 2);
+        Device device = inventory.getDevice(fields[1]);
+        if (device == null) {
+            throw notFound(fields[1]);
+        }
+        writeDevices(Collections.singletonList(device), out);
+    }
+
+    /**
+     * Executes UPDATE name price quantity. Both changes are applied by one
+     * call to updateDeviceDetails, which refuses them together, and the reply
+     * holds the resulting price and quantity.
+     * Time Complexity: O(log n)
+     *
+     * @param fields The command fields.
+     * @param out    Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private void update(String[] fields, Appendable out) throws IOException {
+        requireFields(fields, 4);
+        boolean keepPrice = isKept(fields[2]);
+        boolean keepQuantity = isKept(fields[3]);
+        if (keepPrice && keepQuantity) {
+            throw new IllegalArgumentException("nothing to update");
+        }
+        // updateDeviceDetails reads a price of 0 or less and a negative quantity as "keep"
+        double price = keepPrice ? 0 : parseDouble(fields[2]);
+        int quantity = keepQuantity ? -1 : parseInt(fields[3]);
+        if (!keepPrice && !(price > 0)) {
+            throw new IllegalArgumentException("invalid price '" + fields[2] + "'");
+        }
+        if (!keepQuantity && quantity < 0) {
+            throw new IllegalArgumentException("negative quantity " + quantity);
+        }
+        InventoryResult result = inventory.updateDeviceDetails(fields[1], price, quantity);
+        switch (result.getStatus()) {
+            case APPLIED:
+                break;
+            case NOT_FOUND:
+                throw notFound(fields[1]);
+            case INSUFFICIENT_STOCK:
+                throw new IllegalArgumentException("the quantity cannot go below the reserved units");
+            case VALUE_TOO_LARGE:
+            default:
+                throw new IllegalArgumentException("the stock value of '" + fields[1] + "' would be too large");
+        }
+        out.append("OK\t");
+        appendCents(out, Math.round(result.getPrice() * 100));
+        out.append('\t').append(Integer.toString(result.getQuantity())).append('\n');
+    }
+
+    /**
+     * Executes RESTOCK name ADD|REMOVE quantity; the reply holds the new
+     * quantity. The change goes through restockDevice, so a ConcurrentInventory
+     * takes only the device's stripe, not the write lock.
+     * Time Complexity: O(1)
+     *
+     * @param fields The command fields.
+     * @param out    Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private void restock(String[] fields, Appendable out) throws IOException {
+        requireFields(fields, 4);
+        String action = fields[2].trim();
+        int quantity = parseInt(fields[3]);
+        boolean addStock;
+        if (action.equalsIgnoreCase("Add")) {
+            addStock = true;
+        } else if (action.equalsIgnoreCase("Remove")) {
+            addStock = false;
+        } else {
+            throw new IllegalArgumentException("invalid action '" + action + "', expected ADD or REMOVE");
+        }
+        if (quantity < 0) {
+            throw new IllegalArgumentException("negative quantity " + quantity);
+        }
+        InventoryResult result = inventory.restockDevice(fields[1], quantity, addStock);
+        switch (result.getStatus()) {
+            case APPLIED:
+                break;
+            case NOT_FOUND:
+                throw notFound(fields[1]);
+            case INSUFFICIENT_STOCK:
+                throw new IllegalArgumentException("attempt to remove more stock than available");
+            case VALUE_TOO_LARGE:
+            default:
+                throw new IllegalArgumentException("the stock value of '" + fields[1] + "' would be too large");
+        }
+        out.append("OK\t").append(Integer.toString(result.getQuantity())).append('\n');
+    }
+
+    /**
+     * Executes BATCH action name value [action name value ...]. The whole
+     * line is parsed before anything is applied, so a malformed operation
+     * fails the batch with ERR; operations the inventory refuses only get
+     * their own status in the OK reply.
+     * Time Complexity: O(k log n) where k is the number of operations.
+     *
+     * @param fields The command fields.
+     * @param out    Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private void batch(String[] fields, Appendable out) throws IOException {
+        if (fields.length < 4 || (fields.length - 1) % 3 != 0) {
+            throw new IllegalArgumentException("BATCH expects tab-separated action, name and value triples but found "
+                    + (fields.length - 1) + " arguments");
+        }
+        List<StockOperation> operations = new ArrayList<>((fields.length - 1) / 3);
+        for (int i = 1; i < fields.length; i += 3) {
+            String action = fields[i].trim().toUpperCase(Locale.ROOT);
+            String name = fields[i + 1];
+            switch (action) {
+                case "ADD":
+                    operations.add(StockOperation.addStock(name, parseInt(fields[i + 2])));
+                    break;
+                case "REMOVE":
+                    operations.add(StockOperation.removeStock(name, parseInt(fields[i + 2])));
+                    break;
+                case "PRICE":
+                    operations.add(StockOperation.setPrice(name, parseDouble(fields[i + 2])));
+                    break;
+                case "QUANTITY":
+                    operations.add(StockOperation.setQuantity(name, parseInt(fields[i + 2])));
+                    break;
+                default:
+                    throw new IllegalArgumentException("invalid action '" + fields[i]
+                            + "', expected ADD, REMOVE, PRICE or QUANTITY");
+            }
+        }
+        List<StockOperationResult> results = inventory.applyBatch(operations);
+        out.append("OK\t").append(Integer.toString(results.size())).append('\n');
+        for (StockOperationResult result : results) {
+            out.append(result.getStatus().name()).append('\t').append(result.getOperation().getDeviceName())
+                    .append('\t');
+            appendCents(out, Math.round(result.getPrice() * 100));
+            out.append('\t').append(Integer.toString(result.getQuantity())).append('\n');
+        }
+    }
+
+    /**
+     * Executes PAGE order size [category|- [after-price after-name]]; "-"
+     * lists all categories.
+     * Time Complexity: O(log n + p) where p is the page size; see
+     * Inventory.getPage for a category filter.
+     *
+     * @param fields The command fields.
+     * @param out    Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private void page(String[] fields, Appendable out) throws IOException {
+        if (fields.length != 3 && fields.length != 4 && fields.length != 6) {
+            throw new IllegalArgumentException("PAGE expects 2, 3 or 5 tab-separated arguments but found "
+                    + (fields.length - 1));
+        }
+        PageCursor.Order order;
+        try {
+            order = PageCursor.Order.valueOf(fields[1].trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown order '" + fields[1] + "', expected NAME or PRICE");
+        }
+        int size = parseInt(fields[2]);
+        if (size < 1) {
+            throw new IllegalArgumentException("the page size must be at least 1");
+        }
+        Category category = null;
+        if (fields.length > 3 && !isKept(fields[3])) {
+            category = Category.fromDisplayName(fields[3]);
+            if (category == null) {
+                throw new IllegalArgumentException("category '" + fields[3] + "' is not allowed");
+            }
+        }
+        PageCursor cursor = fields.length == 6
+                ? PageCursor.resume(order, category, parseDouble(fields[4]), fields[5])
+                : PageCursor.first(order, category);
+
+        DevicePage page = inventory.getPage(cursor, size);
+        List<Device> devices = page.getDevices();
+        out.append("OK\t").append(Integer.toString(devices.size()));
+        if (page.hasNextPage()) {
+            // The exact price, not cents, so the next page starts right after the last device
+            PageCursor next = page.getNextCursor();
+            out.append('\t').append(Double.toString(next.getLastPrice()))
+                    .append('\t').append(next.getLastNameKey());
+        }
+        out.append('\n');
+        writeDeviceLines(devices, out);
+    }
+
+    /**
+     * Executes TOP ranking k [category].
+     * Time Complexity: O(log n + k) for price rankings of all categories,
+     * O(n log k) otherwise.
+     *
+     * @param fields The command fields.
+     * @param out    Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private void top(String[] fields, Appendable out) throws IOException {
+        if (fields.length != 3 && fields.length != 4) {
+            throw new IllegalArgumentException("TOP expects 2 or 3 tab-separated arguments but found "
+                    + (fields.length - 1));
+        }
+        Ranking ranking;
+        try {
+            ranking = Ranking.valueOf(fields[1].trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown ranking '" + fields[1] + "', expected one of "
+                    + Arrays.toString(Ranking.values()));
+        }
+        int k = parseInt(fields[2]);
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        Category category = null;
+        if (fields.length == 4) {
+            category = Category.fromDisplayName(fields[3]);
+            if (category == null) {
+                throw new IllegalArgumentException("category '" + fields[3] + "' is not allowed");
+            }
+        }
+        writeDevices(inventory.findTopDevices(ranking, category, k), out);
+    }
+
+    /**
+     * Executes PREFIX text [limit] or SEARCH text [limit]. The limit defaults
+     * to DEFAULT_SEARCH_LIMIT.
+     * Time Complexity: O(log n + k) for PREFIX; see Inventory.searchDevicesByName
+     * for SEARCH.
+     *
+     * @param keyword The normalized command keyword.
+     * @param fields  The command fields.
+     * @param out     Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private void search(String keyword, String[] fields, Appendable out) throws IOException {
+        if (fields.length != 2 && fields.length != 3) {
+            throw new IllegalArgumentException(keyword + " expects 1 or 2 tab-separated arguments but found "
+                    + (fields.length - 1));
+        }
+        int limit = fields.length == 3 ? parseInt(fields[2]) : DEFAULT_SEARCH_LIMIT;
+        writeDevices(keyword.equals("PREFIX")
+                ? inventory.findDevicesByNamePrefix(fields[1], limit)
+                : inventory.searchDevicesByName(fields[1], limit), out);
+    }
+
+    /**
+     * Executes VALUE [category]; the reply holds the total value, or the value
+     * of the category.
+     * Time Complexity: O(1)
+     *
+     * @param fields The command fields.
+     * @param out    Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private void value(String[] fields, Appendable out) throws IOException {
+        long cents;
+        if (fields.length == 1) {
+            cents = inventory.getTotalInventoryValueInCents();
+        } else {
+            requireFields(fields, 2);
+            Category category = Category.fromDisplayName(fields[1]);
+            if (category == null) {
+                throw new IllegalArgumentException("category '" + fields[1] + "' is not allowed");
+            }
+            cents = inventory.getCategoryValueInCents(category);
+        }
+        out.append("OK\t");
+        appendCents(out, cents);
+        out.append('\n');
+    }
+
+    /**
+     * Executes EXPORT [format]. The report is written to inventory.&lt;extension&gt;
+     * in the working directory of the process; clients cannot choose the path.
+     * Every export writes its own temporary file and moves it into place, so
+     * concurrent exports never interleave and the last one to finish wins.
+     * Time Complexity: O(n)
+     *
+     * @param fields The command fields.
+     * @param out    Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private void export(String[] fields, Appendable out) throws IOException {
+        InventoryExporter.Format format = parseFormat(fields);
+        String fileName = "inventory." + format.getExtension();
+        try {
+            inventory.writeReport(Paths.get(fileName), format);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot write " + fileName + ": " + e.getMessage());
+        }
+        out.append("OK\t").append(fileName).append('\n');
+    }
+
+    /**
+     * Executes EXPORT_CATEGORIES [format]. The categories are written in
+     * parallel, one thread per category, by exportInventoryByCategory; the
+     * reply holds the directory, which clients cannot choose either.
+     * Time Complexity: O(n/p) elapsed - see Inventory.exportInventoryByCategory.
+     *
+     * @param fields The command fields.
+     * @param out    Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private void exportCategories(String[] fields, Appendable out) throws IOException {
+        InventoryExporter.Format format = parseFormat(fields);
+        ExportResult result = inventory.exportInventoryByCategory(Paths.get(CATEGORY_EXPORT_DIRECTORY), format,
+                Category.values().length);
+        switch (result.getStatus()) {
+            case EXPORTED:
+                out.append("OK\t").append(CATEGORY_EXPORT_DIRECTORY).append('\n');
+                break;
+            case INTERRUPTED:
+                throw new IllegalArgumentException("the export of " + CATEGORY_EXPORT_DIRECTORY + " was interrupted");
+            default:
+                throw new IllegalArgumentException("cannot write " + CATEGORY_EXPORT_DIRECTORY + ": "
+                        + result.getMessage());
+        }
+    }
+
+    /**
+     * Parses the optional format field of EXPORT and EXPORT_CATEGORIES.
+     * Time Complexity: O(1)
+     *
+     * @param fields The command fields.
+     * @return The format, TEXT if none is given.
+     * @throws IllegalArgumentException if the format is unknown.
+     */
+    private static InventoryExporter.Format parseFormat(String[] fields) {
+        if (fields.length == 1) {
+            return InventoryExporter.Format.TEXT;
+        }
+        requireFields(fields, 2);
+        try {
+            return InventoryExporter.Format.valueOf(fields[1].trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown format '" + fields[1] + "'");
+        }
+    }
+
+    /**
+     * Writes a device list reply.
+     * Time Complexity: O(k) where k is the number of devices.
+     *
+     * @param devices The devices to write.
+     * @param out     Where the reply is written.
+     * @throws IOException if the reply cannot be written.
+     */
+    private static void writeDevices(Collection<Device> devices, Appendable out) throws IOException {
+        out.append("OK\t").append(Integer.toString(devices.size())).append('\n');
+        writeDeviceLines(devices, out);
+    }
+
+    /**
+     * Writes one line per device, without the OK line.
+     * Time Complexity: O(k) where k is the number of devices.
+     *
+     * @param devices The devices to write.
+     * @param out     Where the lines are written.
+     * @throws IOException if the lines cannot be written.
+     */
+    private static void writeDeviceLines(Collection<Device> devices, Appendable out) throws IOException {
+        for (Device device : devices) {
+            out.append(device.getCategory()).append('\t').append(device.getName()).append('\t');
+            appendCents(out, Math.round(device.getPrice() * 100));
+            out.append('\t').append(Integer.toString(device.getQuantity())).append('\n');
+        }
+    }
+
+    /**
+     * Writes an amount of cents as a decimal with two fraction digits.
+     * Time Complexity: O(d) where d is the number of digits.
+     *
+     * @param out   Where the amount is written.
+     * @param cents The amount to write.
+     * @throws IOException if the amount cannot be written.
+     */
+    private static void appendCents(Appendable out, long cents) throws IOException {
+        if (cents < 0) {
+            out.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        out.append(Long.toString(cents / 100)).append(fraction < 10 ? ".0" : ".");
+        out.append(Long.toString(fraction));
+    }
+
+    /**
+     * Checks the number of fields of a command.
+     * Time Complexity: O(1)
+     *
+     * @param fields   The command fields, the keyword included.
+     * @param expected The expected number of fields.
+     * @throws IllegalArgumentException if the number differs.
+     */
+    private static void requireFields(String[] fields, int expected) {
+        if (fields.length != expected) {
+            throw new IllegalArgumentException(fields[0].trim().toUpperCase(Locale.ROOT) + " expects "
+                    + (expected - 1) + " tab-separated arguments but found " + (fields.length - 1));
+        }
+    }
+
+    /**
+     * Checks whether an UPDATE field asks to keep the current value.
+     * Time Complexity: O(k) where k is the length of the field.
+     *
+     * @param field The field.
+     * @return true if the field is empty or "-".
+     */
+    private static boolean isKept(String field) {
+        String value = field.trim();
+        return value.isEmpty() || value.equals("-");
+    }
+
+    /**
+     * Parses a price.
+     * Time Complexity: O(k) where k is the length of the field.
+     *
+     * @param field The field.
+     * @return The price.
+     * @throws IllegalArgumentException if the field is not a number.
+     */
+    private static double parseDouble(String field) {
+        try {
+            return Double.parseDouble(field.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number '" + field + "'");
+        }
+    }
+
+    /**
+     * Parses a quantity.
+     * Time Complexity: O(k) where k is the length of the field.
+     *
+     * @param field The field.
+     * @return The quantity.
+     * @throws IllegalArgumentException if the field is not a whole number.
+     */
+    private static int parseInt(String field) {
+        try {
+            return Integer.parseInt(field.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number '" + field + "'");
+        }
+    }
+
+    /**
+     * Creates the error for a device that does not exist.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The name that was not found.
+     * @return The error.
+     */
+    private static IllegalArgumentException notFound(String deviceName) {
+        return new IllegalArgumentException("device '" + deviceName + "' not found");
+    }
+
+    /**
+     * The number of commands a script executed and how many of them failed.
+     */
+    public static final class ScriptResult {
+        private final int executed;
+        private final int failed;
+
+        /**
+         * Constructs a script result.
+         * Time Complexity: O(1)
+         *
+         * @param executed The number of commands executed.
+         * @param failed   The number of commands answered with ERR.
+         */
+        ScriptResult(int executed, int failed) {
+            this.executed = executed;
+            this.failed = failed;
+        }
+
+        /**
+         * Gets the number of commands executed, comments and blank lines
+         * excluded.
+         * Time Complexity: O(1)
+         *
+         * @return The number of commands.
+         */
+        public int getExecuted() {
+            return executed;
+        }
+
+        /**
+         * Gets the number of commands answered with ERR.
+         * Time Complexity: O(1)
+         *
+         * @return The number of failed commands.
+         */
+        public int getFailed() {
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,451 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * The CompactDevice class is the single device type created by
+ * Category.createDevice. It holds the shared Category constant instead of a
+ * category string, and keeps its stock inline instead of in a separate
+ * snapshot object: the price as raw double bits, and the quantity and the
+ * reserved units packed into one long. With compressed references an
+ * instance takes 40 bytes, and no stock change allocates.
+ * Reservations and releases are single lock-free compare-and-sets on the
+ * packed counts, so checkouts never wait and the stock can never drop below
+ * the reserved units.
+ * Changes the listener is told about (price, quantity and commits) work like a
+ * seqlock: the writer sets a bit in the packed counts, asks the listener,
+ * installs the change, reports it, and clears the bit. Writers of one device
+ * are thereby ordered, and each change reported to the listener is one step
+ * from a consistent old pair of values to a consistent new one. Getters never
+ * wait; reservations may interleave with a writer, which rechecks the
+ * reserved units when it installs its change. A listener must not change
+ * the stock of the device it is told about.
+ * All methods in this class operate in O(1) time complexity, excluding the
+ * work done by the listener and retries under contention.
+ */
+public final class CompactDevice implements ReservableDevice {
+
+    private static final VarHandle COUNTS;
+
+    static {
+        try {
+            COUNTS = MethodHandles.lookup().findVarHandle(CompactDevice.class, "counts", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Set in the counts while a writer changes the stock; the quantity never uses the sign bit
+    private static final long WRITING = Long.MIN_VALUE;
+
+    private Category category;
+    private String name;
+    private volatile long priceBits;
+    // Writer bit, then the quantity in bits 32 to 62 and the reserved units in the low 32 bits
+    private volatile long counts;
+    private volatile DeviceListener listener;
+
+    /**
+     * Constructs a new device with the specified details.
+     * Time complexity: O(1)
+     * @param category The category of the device.
+     * @param name The name of the device.
+     * @param price The price of the device.
+     * @param quantity The quantity of the device in inventory.
+     * @throws IllegalArgumentException if the category is null or the
+     *                                  quantity is negative.
+     */
+    public CompactDevice(Category category, String name, double price, int quantity) {
+        if (category == null) {
+            throw new IllegalArgumentException("The category must not be null.");
+        }
+        requireNonNegative(quantity);
+        this.category = category;
+        this.name = name;
+        this.priceBits = Double.doubleToRawLongBits(price);
+        this.counts = pack(quantity, 0);
+    }
+
+    /**
+     * Gets the category of this device.
+     * Time complexity: O(1) - The display name is shared by all devices of the category.
+     * @return The display name of the category, e.g. "Smart Phone".
+     */
+    @Override
+    public String getCategory() { return category.getDisplayName(); }
+
+    /**
+     * Gets the name of this device.
+     * Time complexity: O(1)
+     * @return The name of the device.
+     */
+    @Override
+    public String getName() { return name; }
+
+    /**
+     * Gets the price of this device.
+     * Time complexity: O(1)
+     * @return The price of the device.
+     */
+    @Override
+    public double getPrice() { return Double.longBitsToDouble(priceBits); }
+
+    /**
+     * Gets the quantity of this device in inventory, reserved units included.
+     * Time complexity: O(1)
+     * @return The quantity of the device.
+     */
+    @Override
+    public int getQuantity() { return quantity(counts); }
+
+    /**
+     * Gets the number of units reserved and not yet committed or released.
+     * Time complexity: O(1)
+     * @return The reserved quantity.
+     */
+    @Override
+    public int getReservedQuantity() { return reserved(counts); }
+
+    /**
+     * Gets the number of units that can still be reserved or removed.
+     * Time complexity: O(1) - Both counts are read from one long.
+     * @return The quantity minus the reserved units.
+     */
+    @Override
+    public int getAvailableQuantity() {
+        long current = counts;
+        return quantity(current) - reserved(current);
+    }
+
+    /**
+     * Sets the category of this device. The listener, if any, is told first so
+     * it can update or veto the change.
+     * Time complexity: O(1) plus the cost of the listener.
+     * @param category The display name of the new category.
+     * @throws IllegalArgumentException if the category is not allowed.
+     */
+    @Override
+    public void setCategory(String category) {
+        Category target = Category.fromDisplayName(category);
+        if (target == null) {
+            throw new IllegalArgumentException("Category '" + category + "' is not allowed.");
+        }
+        DeviceListener current = listener;
+        if (current != null) {
+            current.categoryChanging(this, category);
+        }
+        this.category = target;
+    }
+
+    /**
+     * Sets the name of this device. The listener, if any, is told first so it
+     * can update or veto the change.
+     * Time complexity: O(1) plus the cost of the listener.
+     * @param name The new name of the device.
+     */
+    @Override
+    public void setName(String name) {
+        DeviceListener current = listener;
+        if (current != null) {
+            current.nameChanging(this, name);
+        }
+        this.name = name;
+    }
+
+    /**
+     * Sets the price of this device. The listener, if any, is asked first and
+     * told afterwards.
+     * Time complexity: O(1) plus the cost of the listener.
+     * @param price The new price of the device.
+     */
+    @Override
+    public void setPrice(double price) {
+        long held = beginWrite();
+        try {
+            double oldPrice = getPrice();
+            int quantity = quantity(held);
+            stockChanging(price, quantity);
+            priceBits = Double.doubleToRawLongBits(price);
+            stockChanged(oldPrice, quantity, price, quantity);
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Sets the quantity of this device in inventory. The new quantity is
+     * checked against the reserved units in the compare-and-set that installs
+     * it, so the stock can never drop below them. The listener, if any, is
+     * asked first and told afterwards.
+     * Time complexity: O(1) plus the cost of the listener.
+     * @param quantity The new quantity of the device.
+     * @throws IllegalArgumentException if the quantity is negative.
+     * @throws IllegalStateException if more units are reserved.
+     */
+    @Override
+    public void setQuantity(int quantity) {
+        requireNonNegative(quantity);
+        long held = beginWrite();
+        try {
+            requireCoversReserved(held, quantity);
+            if (!changeQuantity(held, quantity, 0)) {
+                throw new IllegalStateException("Units of " + name + " were reserved meanwhile, more than the quantity "
+                        + quantity + ".");
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Atomically adds a delta to the quantity, refusing to go below the
+     * reserved units.
+     * Time complexity: O(1) plus the cost of the listener.
+     * @param delta The units to add, negative to remove.
+     * @return true if the quantity was changed, false if too few units are
+     *         available or the quantity would overflow.
+     */
+    @Override
+    public boolean adjustQuantity(int delta) {
+        long held = beginWrite();
+        try {
+            long quantity = (long) quantity(held) + delta;
+            if (quantity < reserved(held) || quantity > Integer.MAX_VALUE) {
+                return false;
+            }
+            return changeQuantity(held, (int) quantity, 0);
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Atomically reserves units if that many are available. The value of the
+     * stock does not change, so the listener is not told and no writer is
+     * waited for.
+     * Time complexity: O(1) - A compare-and-set, retried under contention.
+     * @param units The number of units to reserve.
+     * @return true if the units were reserved, false if too few are available.
+     * @throws IllegalArgumentException if units is negative.
+     */
+    @Override
+    public boolean reserve(int units) {
+        requireNonNegative(units);
+        while (true) {
+            long current = counts;
+            if (quantity(current) - reserved(current) < units) {
+                return false;
+            }
+            if (COUNTS.compareAndSet(this, current, current + units)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Atomically returns reserved units to the available stock, without
+     * waiting for a writer.
+     * Time complexity: O(1) - A compare-and-set, retried under contention.
+     * @param units The number of reserved units to release.
+     * @throws IllegalArgumentException if units is negative.
+     * @throws IllegalStateException if fewer units are reserved.
+     */
+    @Override
+    public void release(int units) {
+        requireNonNegative(units);
+        while (true) {
+            long current = counts;
+            requireReserved(current, units);
+            if (COUNTS.compareAndSet(this, current, current - units)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Atomically takes reserved units out of the stock. The listener, if any,
+     * is asked first and told afterwards.
+     * Time complexity: O(1) plus the cost of the listener.
+     * @param units The number of reserved units to commit.
+     * @throws IllegalArgumentException if units is negative.
+     * @throws IllegalStateException if fewer units are reserved.
+     */
+    @Override
+    public void commit(int units) {
+        requireNonNegative(units);
+        long held = beginWrite();
+        try {
+            requireReserved(held, units);
+            if (!changeQuantity(held, quantity(held) - units, units)) {
+                throw new IllegalStateException("Units of " + name + " were released meanwhile, fewer than "
+                        + units + " are reserved.");
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Attaches the listener notified of changes to this device.
+     * Time complexity: O(1)
+     * @param listener The listener to notify, or null to detach.
+     */
+    @Override
+    public void setListener(DeviceListener listener) { this.listener = listener; }
+
+    /**
+     * Sets the writer bit, waiting for the current writer, if any, to clear it.
+     * Time complexity: O(1) plus the wait for another writer.
+     * @return The counts the bit was set on, writer bit excluded.
+     */
+    private long beginWrite() {
+        while (true) {
+            long current = counts;
+            if ((current & WRITING) == 0 && COUNTS.compareAndSet(this, current, current | WRITING)) {
+                return current;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Clears the writer bit. Reservations may have changed the reserved units
+     * meanwhile, so the bit is cleared with compare-and-set.
+     * Time complexity: O(1) - Retried under contention.
+     */
+    private void endWrite() {
+        while (true) {
+            long current = counts;
+            if (COUNTS.compareAndSet(this, current, current & ~WRITING)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Installs a new quantity while the writer bit is held, taking the
+     * given number of units out of the reserved ones in the same step. The
+     * listener is asked first and told afterwards, before the bit is
+     * cleared.
+     * Time complexity: O(1) plus the cost of the listener.
+     * @param held The counts returned by beginWrite.
+     * @param quantity The new quantity.
+     * @param committed The reserved units taken out of the stock.
+     * @return true if the quantity was installed, false if a concurrent
+     *         reservation or release left it below the reserved units, or
+     *         fewer reserved units than committed.
+     */
+    private boolean changeQuantity(long held, int quantity, int committed) {
+        double price = getPrice();
+        stockChanging(price, quantity);
+        while (true) {
+            long current = counts;
+            int reserved = reserved(current) - committed;
+            if (reserved < 0 || quantity < reserved) {
+                return false;
+            }
+            if (COUNTS.compareAndSet(this, current, pack(quantity, reserved) | WRITING)) {
+                break;
+            }
+        }
+        stockChanged(price, quantity(held), price, quantity);
+        return true;
+    }
+
+    /**
+     * Asks the listener, if any, whether a stock change may be made.
+     * Time complexity: O(1) plus the cost of the listener.
+     * @param price The price after the change.
+     * @param quantity The quantity after the change.
+     */
+    private void stockChanging(double price, int quantity) {
+        DeviceListener current = listener;
+        if (current != null) {
+            current.stockChanging(this, price, quantity);
+        }
+    }
+
+    /**
+     * Reports one atomic stock change to the listener, if any.
+     * Time complexity: O(1) plus the cost of the listener.
+     * @param oldPrice The price before the change.
+     * @param oldQuantity The quantity before the change.
+     * @param newPrice The price after the change.
+     * @param newQuantity The quantity after the change.
+     */
+    private void stockChanged(double oldPrice, int oldQuantity, double newPrice, int newQuantity) {
+        DeviceListener current = listener;
+        if (current != null) {
+            current.stockChanged(this, oldPrice, oldQuantity, newPrice, newQuantity);
+        }
+    }
+
+    /**
+     * Checks that at least the given number of units is reserved.
+     * Time complexity: O(1)
+     * @param current The counts to check.
+     * @param units The unit count.
+     * @throws IllegalStateException if fewer units are reserved.
+     */
+    private void requireReserved(long current, int units) {
+        if (units > reserved(current)) {
+            throw new IllegalStateException("Only " + reserved(current) + " units of " + name + " are reserved.");
+        }
+    }
+
+    /**
+     * Checks that a new quantity still covers the reserved units.
+     * Time complexity: O(1)
+     * @param current The counts to check.
+     * @param quantity The new quantity.
+     * @throws IllegalStateException if more units are reserved.
+     */
+    private void requireCoversReserved(long current, int quantity) {
+        if (quantity < reserved(current)) {
+            throw new IllegalStateException(reserved(current) + " units of " + name
+                    + " are reserved, more than the quantity " + quantity + ".");
+        }
+    }
+
+    /**
+     * Checks that a unit count is not negative.
+     * Time complexity: O(1)
+     * @param units The unit count.
+     * @throws IllegalArgumentException if units is negative.
+     */
+    private static void requireNonNegative(int units) {
+        if (units < 0) {
+            throw new IllegalArgumentException("Units must not be negative: " + units);
+        }
+    }
+
+    /**
+     * Packs a quantity and a reserved count into one long.
+     * Time complexity: O(1)
+     * @param quantity The quantity, not negative.
+     * @param reserved The reserved units, not negative.
+     * @return The packed counts.
+     */
+    private static long pack(int quantity, int reserved) {
+        return ((long) quantity << 32) | reserved;
+    }
+
+    /**
+     * Unpacks the quantity.
+     * Time complexity: O(1)
+     * @param counts The packed counts.
+     * @return The quantity.
+     */
+    private static int quantity(long counts) {
+        return (int) ((counts & ~WRITING) >>> 32);
+    }
+
+    /**
+     * Unpacks the reserved units.
+     * Time complexity: O(1)
+     * @param counts The packed counts.
+     * @return The reserved units.
+     */
+    private static int reserved(long counts) {
+        return (int) counts;
+    }
+}
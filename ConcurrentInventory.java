@@ -0,0 +1,538 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The ConcurrentInventory class is a thread-safe Inventory that can be shared
+ * by several terminals or worker threads.
+ * Operations that change the structure of the inventory (adding, removing,
+ * repricing or renaming devices) take an exclusive lock, because they re-key
+ * the shared indexes. Queries take the shared lock and run in parallel. Restocking only changes a device's quantity and the atomic
+ * category values, so it runs under the shared lock too, serialized per
+ * device by one of a fixed set of striped locks; restocks of different
+ * devices proceed in parallel, and the check-then-act of a stock removal can
+ * never oversell. The stock change itself is atomic on every
+ * ReservableDevice; CompactDevice orders its stock changes with a writer bit
+ * in its packed counts.
+ * Checkout traffic can bypass the locks entirely: look a device up once, then
+ * call ReservableDevice.reserve, release and commit; reserve and release are
+ * lock-free on CompactDevice. Commits made through commitReservation take the device's
+ * stripe, so snapshots see them whole. Reservations should
+ * be settled before a device is removed.
+ * Reports are written from a snapshot, which is taken in O(1) under the
+ * shared lock, so neither taking it nor a long export stalls restocks.
+ * With InventoryMetrics attached, the time spent waiting for the shared lock,
+ * the exclusive lock and the stripes is recorded separately from the
+ * operations themselves, so contention shows up as its own latency.
+ * Apart from reservations, devices held by a ConcurrentInventory must only be
+ * changed through its methods, not through the Device setters.
+ */
+public class ConcurrentInventory extends Inventory {
+
+    private static final int STRIPES = 64; // Must be a power of two
+
+    private final ReentrantReadWriteLock structureLock;
+    private final Lock[] stripes;
+
+    /**
+     * Constructs a new, empty ConcurrentInventory.
+     * Time Complexity: O(1) - The number of stripes is fixed.
+     */
+    public ConcurrentInventory() {
+        this(null);
+    }
+
+    /**
+     * Constructs a new, empty ConcurrentInventory that keeps the stock of its
+     * devices in the given columns. Their rows are only added and removed
+     * under the exclusive lock.
+     * Time Complexity: O(1) - The number of stripes is fixed.
+     *
+     * @param columns The empty columns to copy added devices into, or null to
+     *                hold the added devices themselves.
+     */
+    public ConcurrentInventory(ColumnarInventory columns) {
+        super(columns);
+        structureLock = new ReentrantReadWriteLock();
+        stripes = new Lock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Attaches the log that successful mutations are appended to.
+     * Time Complexity: O(1), after waiting for the exclusive lock.
+     *
+     * @param mutationLog The log to append to, or null to stop logging.
+     */
+    @Override
+    public void setMutationLog(MutationLog mutationLog) {
+        Lock lock = acquire(structureLock.writeLock(), InventoryMetrics.Operation.EXCLUSIVE_LOCK_WAIT);
+        try {
+            super.setMutationLog(mutationLog);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the checkpoint under the exclusive lock, which holds off every
+     * logged mutation, restocks and commits included, so no mutation falls
+     * between the checkpoint and the reset log.
+     * Time Complexity: O(n * k), after waiting for the exclusive lock.
+     *
+     * @param path     The checkpoint file.
+     * @param sequence The sequence number of the checkpoint.
+     * @throws IOException if the checkpoint cannot be written or the log reset.
+     */
+    @Override
+    public void writeCheckpoint(Path path, long sequence) throws IOException {
+        Lock lock = acquire(structureLock.writeLock(), InventoryMetrics.Operation.EXCLUSIVE_LOCK_WAIT);
+        try {
+            super.writeCheckpoint(path, sequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a new device under the exclusive lock.
+     * Time Complexity: O(log n), after waiting for the exclusive lock.
+     *
+     * @param device The device to be added to the inventory.
+     * @return The result: APPLIED, CATEGORY_NOT_ALLOWED, NAME_TOO_LONG,
+     *         VALUE_TOO_LARGE or DUPLICATE_NAME.
+     */
+    @Override
+    public InventoryResult addDevice(ReservableDevice device) {
+        Lock lock = acquire(structureLock.writeLock(), InventoryMetrics.Operation.EXCLUSIVE_LOCK_WAIT);
+        try {
+            return super.addDevice(device);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a batch of devices under one acquisition of the exclusive lock.
+     * Time Complexity: O(k log n), after waiting for the exclusive lock.
+     *
+     * @param devices The devices to add, in order.
+     * @return For each device, true if it was added and false if it was
+     *         skipped.
+     */
+    @Override
+    public boolean[] addDevices(List<? extends ReservableDevice> devices) {
+        Lock lock = acquire(structureLock.writeLock(), InventoryMetrics.Operation.EXCLUSIVE_LOCK_WAIT);
+        try {
+            return super.addDevices(devices);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a device under the exclusive lock.
+     * Time Complexity: O(log n), after waiting for the exclusive lock.
+     *
+     * @param deviceName The name of the device to be removed.
+     * @return The result, holding the removed device.
+     */
+    @Override
+    public InventoryResult removeDevice(String deviceName) {
+        Lock lock = acquire(structureLock.writeLock(), InventoryMetrics.Operation.EXCLUSIVE_LOCK_WAIT);
+        try {
+            return super.removeDevice(deviceName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a batch of devices under one acquisition of the exclusive lock.
+     * Time Complexity: O(k log n), after waiting for the exclusive lock.
+     *
+     * @param deviceNames The names of the devices to remove, in order.
+     * @return For each name, true if a device was removed and false if none
+     *         was found.
+     */
+    @Override
+    public boolean[] removeDevices(List<String> deviceNames) {
+        Lock lock = acquire(structureLock.writeLock(), InventoryMetrics.Operation.EXCLUSIVE_LOCK_WAIT);
+        try {
+            return super.removeDevices(deviceNames);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks if a device exists under the shared lock.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The name of the device to be checked.
+     * @return true if the device exists, false otherwise.
+     */
+    @Override
+    public boolean deviceExists(String deviceName) {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        try {
+            return super.deviceExists(deviceName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the device with the given name, looked up under the shared lock.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The name of the device to look up.
+     * @return The matching device, or null if there is none.
+     */
+    @Override
+    public ReservableDevice getDevice(String deviceName) {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        try {
+            return super.getDevice(deviceName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds devices by name prefix under the shared lock.
+     * Time Complexity: O(log n + k)
+     *
+     * @param prefix The start of the names to find.
+     * @param limit  The maximum number of devices to return.
+     * @return The matching devices, ordered by name.
+     */
+    @Override
+    public List<Device> findDevicesByNamePrefix(String prefix, int limit) {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        try {
+            return super.findDevicesByNamePrefix(prefix, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Searches device names under the shared lock.
+     * Time Complexity: O(q + p * k + m log m), as in Inventory.
+     *
+     * @param text  The text the names must contain.
+     * @param limit The maximum number of devices to return.
+     * @return The matching devices, ordered by name.
+     */
+    @Override
+    public List<Device> searchDevicesByName(String text, int limit) {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        try {
+            return super.searchDevicesByName(text, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Updates the price and quantity of a device under the exclusive lock, as
+     * a price change re-keys the price index.
+     * Time Complexity: O(log n), after waiting for the exclusive lock.
+     *
+     * @param deviceName  The name of the device to be updated.
+     * @param newPrice    The new price, ignored if less than or equal to 0.
+     * @param newQuantity The new quantity, ignored if less than 0.
+     * @return The result, holding the price and quantity after the update.
+     */
+    @Override
+    public InventoryResult updateDeviceDetails(String deviceName, double newPrice, int newQuantity) {
+        Lock lock = acquire(structureLock.writeLock(), InventoryMetrics.Operation.EXCLUSIVE_LOCK_WAIT);
+        try {
+            return super.updateDeviceDetails(deviceName, newPrice, newQuantity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies a batch of operations under one acquisition of the exclusive
+     * lock, so the whole batch is atomic with respect to other callers.
+     * Time Complexity: O(k log n), after waiting for the exclusive lock.
+     *
+     * @param operations The operations to apply, in order.
+     * @return One result per operation, in the same order.
+     */
+    @Override
+    public List<StockOperationResult> applyBatch(List<StockOperation> operations) {
+        Lock lock = acquire(structureLock.writeLock(), InventoryMetrics.Operation.EXCLUSIVE_LOCK_WAIT);
+        try {
+            return super.applyBatch(operations);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commits reserved units under the shared lock and the stripe of the
+     * device; the commit itself is a compare-and-set on the device.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The name of the device.
+     * @param units      The number of reserved units to commit.
+     * @return true if the units were committed, false if the device was not
+     *         found.
+     */
+    @Override
+    public boolean commitReservation(String deviceName, int units) {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        Lock stripe = acquire(stripeFor(deviceName), InventoryMetrics.Operation.STRIPE_LOCK_WAIT);
+        try {
+            return super.commitReservation(deviceName, units);
+        } finally {
+            stripe.unlock();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns all devices, listed or taken from the cache under the shared
+     * lock.
+     * Time Complexity: O(1) if the listing is cached, otherwise O(n).
+     *
+     * @return A read-only list of the devices.
+     */
+    @Override
+    public List<Device> getDevices() {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        try {
+            return super.getDevices();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the cheapest device under the shared lock.
+     * Time Complexity: O(log n)
+     *
+     * @return The device with the lowest price, or null if the inventory is empty.
+     */
+    @Override
+    public Device findCheapestDevice() {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        try {
+            return super.findCheapestDevice();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the devices ordered by ascending price. Unlike
+     * Inventory, the result is not a live view, as it could not be iterated
+     * safely while other threads change the inventory.
+     * Time Complexity: O(1) if the listing is cached, otherwise O(n).
+     *
+     * @return The devices ordered by price.
+     */
+    @Override
+    public Collection<Device> getDevicesSortedByPrice() {
+        return sortDevicesByPrice();
+    }
+
+    /**
+     * Returns the devices ordered by ascending price, listed or taken from the
+     * cache under the shared lock.
+     * Time Complexity: O(1) if the listing is cached, otherwise O(n).
+     *
+     * @return A read-only list of the devices ordered by price.
+     */
+    @Override
+    public List<Device> sortDevicesByPrice() {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        try {
+            return super.sortDevicesByPrice();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the devices within a price range, collected under the shared lock.
+     * Time Complexity: O(log n + k)
+     *
+     * @param minPrice The lowest price to include.
+     * @param maxPrice The highest price to include.
+     * @return The matching devices.
+     */
+    @Override
+    public List<Device> findDevicesInPriceRange(double minPrice, double maxPrice) {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        try {
+            return super.findDevicesInPriceRange(minPrice, maxPrice);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the k best ranked devices, selected under the shared lock.
+     * Quantities may change while the devices are ranked, as restocks do not
+     * take the exclusive lock; each device is ranked by the values it had when
+     * it was read.
+     * Time Complexity: O(log n + k) or O(c log k), as in Inventory.
+     *
+     * @param ranking  The order to rank by.
+     * @param category The category to rank, or null for all categories.
+     * @param k        The maximum number of devices to return.
+     * @return The best ranked devices, best first.
+     */
+    @Override
+    public List<Device> findTopDevices(Ranking ranking, Category category, int k) {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        try {
+            return super.findTopDevices(ranking, category, k);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns one page of devices, read under the shared lock. Each page is
+     * consistent on its own; as the cursor holds a sort key, changes made
+     * between two pages never make the listing skip or repeat a device that
+     * stayed in place.
+     * Time Complexity: O(log n + p)
+     *
+     * @param cursor   The cursor of the page.
+     * @param pageSize The maximum number of devices on the page.
+     * @return The page and the cursor of the next page.
+     */
+    @Override
+    public DevicePage getPage(PageCursor cursor, int pageSize) {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        try {
+            return super.getPage(cursor, pageSize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds or removes stock under the shared lock and the stripe of the device,
+     * so restocks of different devices run in parallel and a removal can never
+     * take more units than are in stock.
+     * Time Complexity: O(1), after waiting for the stripe.
+     *
+     * @param deviceName     The name of the device to be restocked.
+     * @param quantityChange The amount of quantity to add or remove.
+     * @param addStock       True to add stock, false to remove stock.
+     * @return The result, holding the new quantity.
+     */
+    @Override
+    public InventoryResult restockDevice(String deviceName, int quantityChange, boolean addStock) {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        Lock stripe = acquire(stripeFor(deviceName), InventoryMetrics.Operation.STRIPE_LOCK_WAIT);
+        try {
+            return super.restockDevice(deviceName, quantityChange, addStock);
+        } finally {
+            stripe.unlock();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a point-in-time snapshot under the shared lock, so no structural
+     * change is half visible in it. Restocks and committed reservations are
+     * applied to the snapshot layout one at a time, so the capture sees each
+     * of them whole without taking the stripes. Reports are then written from
+     * the snapshot without any lock, alongside further restocks and writes.
+     * Time Complexity: O(1), or O(n) when the layout has to be rebuilt.
+     *
+     * @return The snapshot.
+     */
+    @Override
+    public InventorySnapshot snapshot() {
+        Lock lock = acquire(structureLock.readLock(), InventoryMetrics.Operation.SHARED_LOCK_WAIT);
+        try {
+            return super.snapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Builds the snapshot layout under every stripe, so no restock or
+     * committed reservation changes the stock while the columns are filled.
+     * Time Complexity: O(n), after waiting for the stripes.
+     *
+     * @return The new layout.
+     */
+    @Override
+    InventorySnapshot.Layout buildSnapshotLayout() {
+        acquireStripes();
+        try {
+            return super.buildSnapshotLayout();
+        } finally {
+            for (Lock stripe : stripes) {
+                stripe.unlock();
+            }
+        }
+    }
+
+    /**
+     * Acquires a lock, recording the wait when metrics are attached.
+     * Time Complexity: O(1), after waiting for the lock.
+     *
+     * @param lock The lock to acquire.
+     * @param wait The kind of wait to record.
+     * @return The lock, now held.
+     */
+    private Lock acquire(Lock lock, InventoryMetrics.Operation wait) {
+        InventoryMetrics metrics = getMetrics();
+        if (metrics == null) {
+            lock.lock();
+            return lock;
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        metrics.record(wait, System.nanoTime() - start);
+        return lock;
+    }
+
+    /**
+     * Acquires every stripe, in order, recording the whole wait as one when
+     * metrics are attached.
+     * Time Complexity: O(1) - The number of stripes is fixed, after waiting
+     * for them.
+     */
+    private void acquireStripes() {
+        InventoryMetrics metrics = getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
+        for (Lock stripe : stripes) {
+            stripe.lock();
+        }
+        if (metrics != null) {
+            metrics.record(InventoryMetrics.Operation.STRIPE_LOCK_WAIT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the striped lock guarding a device name.
+     * Time Complexity: O(k) where k is the length of the name.
+     *
+     * @param deviceName The device name.
+     * @return The lock of the stripe the name hashes to.
+     */
+    private Lock stripeFor(String deviceName) {
+        int hash = nameKey(deviceName).hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * The ConsoleRenderer class renders inventory results as the text the menu
+ * has always shown. Output is collected in a buffer and written to the stream
+ * with a single call on flush, instead of one synchronized println per line.
+ * A ConsoleRenderer is not thread-safe.
+ */
+public class ConsoleRenderer implements InventoryRenderer {
+
+    private static final String SEPARATOR = "-------------------------------------------------------\n";
+
+    private final PrintStream out;
+    private final StringBuilder buffer;
+
+    /**
+     * Constructs a renderer writing to the given stream.
+     * Time Complexity: O(1)
+     *
+     * @param out The stream written to on flush, normally System.out.
+     */
+    public ConsoleRenderer(PrintStream out) {
+        this.out = out;
+        this.buffer = new StringBuilder(4096);
+    }
+
+    /**
+     * Renders the outcome of adding a device.
+     * Time Complexity: O(1)
+     *
+     * @param result The result returned by Inventory.addDevice.
+     */
+    @Override
+    public void renderAdd(InventoryResult result) {
+        Device device = result.getDevice();
+        switch (result.getStatus()) {
+            case APPLIED:
+                buffer.append(SEPARATOR);
+                buffer.append(device.getCategory()).append(", ").append(device.getName()).append(", ");
+                appendPrice(result.getPrice());
+                buffer.append(", ").append(result.getQuantity()).append(" amount added...\n");
+                buffer.append(SEPARATOR);
+                break;
+            case CATEGORY_NOT_ALLOWED:
+                buffer.append("Category '").append(device.getCategory()).append("' is not allowed.\n");
+                break;
+            case VALUE_TOO_LARGE:
+                buffer.append("The stock value of '").append(device.getName()).append("' is too large.\n");
+                break;
+            case NAME_TOO_LONG:
+                buffer.append("The name '").append(device.getName()).append("' is longer than ")
+                        .append(MappedInventory.MAX_NAME_BYTES).append(" bytes.\n");
+                break;
+            case DUPLICATE_NAME:
+            default:
+                buffer.append("A device with name '").append(device.getName()).append("' already exists.\n");
+                break;
+        }
+    }
+
+    /**
+     * Renders the outcome of removing a device.
+     * Time Complexity: O(1)
+     *
+     * @param result The result returned by Inventory.removeDevice.
+     */
+    @Override
+    public void renderRemoval(InventoryResult result) {
+        buffer.append(SEPARATOR);
+        buffer.append("Device ").append(result.getDeviceName())
+                .append(result.isApplied() ? " removed.\n" : " not found.\n");
+        buffer.append(SEPARATOR);
+    }
+
+    /**
+     * Renders the outcome of updating the price and quantity of a device.
+     * Time Complexity: O(1)
+     *
+     * @param result The result returned by Inventory.updateDeviceDetails.
+     */
+    @Override
+    public void renderUpdate(InventoryResult result) {
+        buffer.append(SEPARATOR);
+        switch (result.getStatus()) {
+            case APPLIED:
+                buffer.append(result.getDevice().getName()).append(" details updated: Price - ");
+                appendPrice(result.getPrice());
+                buffer.append(", Quantity - ").append(result.getQuantity()).append('\n');
+                break;
+            case VALUE_TOO_LARGE:
+                buffer.append("Error: The stock value of ").append(result.getDeviceName())
+                        .append(" would be too large.\n");
+                break;
+            case INSUFFICIENT_STOCK:
+                buffer.append("Error: The quantity of ").append(result.getDeviceName())
+                        .append(" cannot go below its reserved units.\n");
+                break;
+            case NOT_FOUND:
+            default:
+                buffer.append("Device ").append(result.getDeviceName()).append(" not found.\n");
+                break;
+        }
+        buffer.append(SEPARATOR);
+    }
+
+    /**
+     * Renders the outcome of adding or removing stock.
+     * Time Complexity: O(1)
+     *
+     * @param result   The result returned by Inventory.restockDevice.
+     * @param addStock True if stock was added, false if removed.
+     */
+    @Override
+    public void renderRestock(InventoryResult result, boolean addStock) {
+        switch (result.getStatus()) {
+            case NOT_FOUND:
+                buffer.append("Device ").append(result.getDeviceName()).append(" not found in the inventory.\n");
+                return;
+            case INSUFFICIENT_STOCK:
+                buffer.append("Error: Attempt to remove more stock than available.\n");
+                break;
+            case VALUE_TOO_LARGE:
+                buffer.append("Error: The stock value of ").append(result.getDeviceName())
+                        .append(" would be too large.\n");
+                break;
+            case APPLIED:
+            default:
+                buffer.append(result.getDeviceName())
+                        .append(addStock ? " restocked. New quantity: " : " stock reduced. New quantity: ")
+                        .append(result.getQuantity()).append('\n');
+                break;
+        }
+        buffer.append(SEPARATOR);
+    }
+
+    /**
+     * Renders the list of all devices.
+     * Time Complexity: O(n)
+     *
+     * @param devices The devices returned by Inventory.listAllDevices.
+     */
+    @Override
+    public void renderDeviceList(List<Device> devices) {
+        buffer.append(SEPARATOR);
+        buffer.append("Device List:\n");
+        appendDevices(devices);
+        buffer.append(SEPARATOR);
+    }
+
+    /**
+     * Renders the devices ordered by price.
+     * Time Complexity: O(n)
+     *
+     * @param devices The devices returned by Inventory.sortDevicesByPrice.
+     */
+    @Override
+    public void renderSortedDevices(List<Device> devices) {
+        buffer.append("Devices sorted by price:\n");
+        buffer.append(SEPARATOR);
+        appendDevices(devices);
+        buffer.append(SEPARATOR);
+    }
+
+    /**
+     * Renders the outcome of exporting the inventory.
+     * Time Complexity: O(1)
+     *
+     * @param result The result returned by Inventory.exportInventoryToFile or
+     *               Inventory.exportInventoryByCategory.
+     */
+    @Override
+    public void renderExport(ExportResult result) {
+        buffer.append(SEPARATOR);
+        switch (result.getStatus()) {
+            case EXPORTED:
+                buffer.append("Inventory report exported to ").append(result.getPath()).append('\n');
+                break;
+            case FAILED:
+                buffer.append("An error occurred while writing to the file: ").append(result.getMessage()).append('\n');
+                break;
+            case INTERRUPTED:
+            default:
+                buffer.append("The export was interrupted.\n");
+                break;
+        }
+        buffer.append(SEPARATOR);
+    }
+
+    /**
+     * Writes the buffered output to the stream in one call.
+     * Time Complexity: O(b) where b is the number of buffered characters.
+     */
+    @Override
+    public void flush() {
+        if (buffer.length() > 0) {
+            out.print(buffer);
+            buffer.setLength(0);
+        }
+        out.flush();
+    }
+
+    /**
+     * Appends one numbered line per device.
+     * Time Complexity: O(n)
+     *
+     * @param devices The devices to append.
+     */
+    private void appendDevices(List<Device> devices) {
+        int counter = 1;
+        for (Device device : devices) {
+            buffer.append(counter++).append(". Category: ").append(device.getCategory())
+                    .append(", Name: ").append(device.getName())
+                    .append(", Price: ");
+            appendPrice(device.getPrice());
+            buffer.append(", Quantity: ").append(device.getQuantity()).append('\n');
+        }
+    }
+
+    /**
+     * Appends a price with two decimal places and a dollar sign.
+     * Time Complexity: O(1)
+     *
+     * @param price The price to append.
+     */
+    private void appendPrice(double price) {
+        buffer.append(String.format("%.2f$", price));
+    }
+}
@@ -64,8 +64,19 @@ public interface Device {
     /**
      * Sets the quantity of the device in inventory.
      * This method is intended to update the stock quantity of the device.
+     * A ReservableDevice refuses a quantity below its reserved units.
      * 
      * @param quantity The quantity to be set for the device.
+     * @throws IllegalStateException if more units are reserved.
      */
     void setQuantity(int quantity);
+
+    /**
+     * Attaches a listener that is notified when the device is modified.
+     * This method is intended for the inventory holding the device, so it can
+     * keep its indexes up to date.
+     *
+     * @param listener The listener to notify, or null to detach.
+     */
+    void setListener(DeviceListener listener);
 }
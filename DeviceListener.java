@@ -0,0 +1,56 @@
+/**
+ * The DeviceListener interface lets an owner, such as an Inventory, keep its
+ * indexes consistent when a device it holds is modified through the Device
+ * setters.
+ */
+public interface DeviceListener {
+
+    /**
+     * Called before the name of a device is changed. The device still reports
+     * its old name when this method runs. Throwing an exception vetoes the
+     * change and leaves the device untouched.
+     * Time Complexity: depends on the implementation.
+     *
+     * @param device  The device being renamed.
+     * @param newName The name the device is about to take.
+     */
+    void nameChanging(Device device, String newName);
+
+    /**
+     * Called before the category of a device is changed. The device still
+     * reports its old category when this method runs. Throwing an exception
+     * vetoes the change and leaves the device untouched.
+     * Time Complexity: depends on the implementation.
+     *
+     * @param device      The device being moved.
+     * @param newCategory The category the device is about to take.
+     */
+    void categoryChanging(Device device, String newCategory);
+
+    /**
+     * Called before the price or quantity of a device is changed, with the
+     * values the change would leave. Throwing an exception vetoes the change
+     * and leaves the device untouched. Devices that change their stock with
+     * compare-and-set may call this once per attempt.
+     * Time Complexity: depends on the implementation.
+     *
+     * @param device      The device about to change.
+     * @param newPrice    The price after the change.
+     * @param newQuantity The quantity after the change.
+     */
+    void stockChanging(Device device, double newPrice, int newQuantity);
+
+    /**
+     * Called after the price or quantity of a device has changed. The old and
+     * new values belong to one atomic change, so concurrent changes of the
+     * same device each report a consistent pair.
+     * Time Complexity: depends on the implementation.
+     *
+     * @param device      The device that changed.
+     * @param oldPrice    The price before the change.
+     * @param oldQuantity The quantity before the change.
+     * @param newPrice    The price after the change.
+     * @param newQuantity The quantity after the change.
+     */
+    void stockChanged(Device device, double oldPrice, int oldQuantity, double newPrice, int newQuantity);
+}
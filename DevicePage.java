@@ -0,0 +1,54 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The DevicePage class holds one page of a paginated device listing and the
+ * cursor of the page after it. Instances are immutable.
+ */
+public final class DevicePage {
+
+    private final List<Device> devices;
+    private final PageCursor nextCursor;
+
+    /**
+     * Constructs a page.
+     * Time Complexity: O(1)
+     *
+     * @param devices    The devices on the page, in order.
+     * @param nextCursor The cursor of the next page, or null on the last page.
+     */
+    DevicePage(List<Device> devices, PageCursor nextCursor) {
+        this.devices = Collections.unmodifiableList(devices);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets the devices on this page.
+     * Time Complexity: O(1)
+     *
+     * @return A read-only list of at most the requested page size.
+     */
+    public List<Device> getDevices() {
+        return devices;
+    }
+
+    /**
+     * Tells whether more devices follow this page.
+     * Time Complexity: O(1)
+     *
+     * @return true if there is a next page.
+     */
+    public boolean hasNextPage() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Gets the cursor to pass to Inventory.getPage for the next page.
+     * Time Complexity: O(1)
+     *
+     * @return The cursor, or null on the last page.
+     */
+    public PageCursor getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,114 @@
+import java.nio.file.Path;
+
+/**
+ * The ExportResult class describes the outcome of exporting the inventory to
+ * a file or a directory, so callers decide how to report it instead of the
+ * inventory printing to the console.
+ * Instances are immutable.
+ */
+public final class ExportResult {
+
+    /**
+     * The possible outcomes of an export.
+     */
+    public enum Status {
+        /** Every file was written. */
+        EXPORTED,
+        /** A file could not be written. */
+        FAILED,
+        /** The exporting thread was interrupted before the files were written. */
+        INTERRUPTED
+    }
+
+    private final Status status;
+    private final Path path;
+    private final String message;
+
+    /**
+     * Constructs a result.
+     * Time Complexity: O(1)
+     *
+     * @param status  The outcome of the export.
+     * @param path    The file or directory exported to.
+     * @param message The reason of a failure, or null.
+     */
+    private ExportResult(Status status, Path path, String message) {
+        this.status = status;
+        this.path = path;
+        this.message = message;
+    }
+
+    /**
+     * Creates the result of a completed export.
+     * Time Complexity: O(1)
+     *
+     * @param path The file or directory exported to.
+     * @return The result.
+     */
+    static ExportResult exported(Path path) {
+        return new ExportResult(Status.EXPORTED, path, null);
+    }
+
+    /**
+     * Creates the result of an export that failed to write a file.
+     * Time Complexity: O(1)
+     *
+     * @param path    The file or directory exported to.
+     * @param message The reason of the failure.
+     * @return The result.
+     */
+    static ExportResult failed(Path path, String message) {
+        return new ExportResult(Status.FAILED, path, message);
+    }
+
+    /**
+     * Creates the result of an interrupted export.
+     * Time Complexity: O(1)
+     *
+     * @param path The file or directory exported to.
+     * @return The result.
+     */
+    static ExportResult interrupted(Path path) {
+        return new ExportResult(Status.INTERRUPTED, path, null);
+    }
+
+    /**
+     * Gets the outcome of the export.
+     * Time Complexity: O(1)
+     *
+     * @return The status.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Tells whether every file was written.
+     * Time Complexity: O(1)
+     *
+     * @return true if the status is EXPORTED.
+     */
+    public boolean isExported() {
+        return status == Status.EXPORTED;
+    }
+
+    /**
+     * Gets the file or directory exported to.
+     * Time Complexity: O(1)
+     *
+     * @return The path.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the reason of a failure.
+     * Time Complexity: O(1)
+     *
+     * @return The message, or null if the export did not fail.
+     */
+    public String getMessage() {
+        return message;
+    }
+}
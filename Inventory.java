@@ -1,352 +1,1532 @@
 import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * The Inventory class represents a collection of electronic devices.
- * Devices are organized into categories, each represented as an ArrayList
- * within a LinkedList.
+ * Devices are organized into categories, each represented as an insertion
+ * ordered set within an EnumMap keyed by Category.
  * This allows for categorization and management of devices within an inventory
  * system.
+ * A case-insensitive index from device name to device, an index ordered by
+ * name and an index ordered by price are kept alongside the category lists,
+ * so lookups by name, price queries and paginated listings do not have to
+ * scan the inventory. A trigram index over the names answers substring
+ * searches.
+ * The inventory value is maintained per category in whole cents as devices are
+ * added, removed and changed, so valuation never rescans the devices and
+ * does not accumulate floating-point error.
+ * The full listings by category and by price are cached between the
+ * mutations that can change them, so repeated listings cost O(1); quantity
+ * changes do not invalidate them, as the listed devices stay the same.
+ * Reports are written from an InventorySnapshot, a point-in-time view whose
+ * name and category columns are shared until the devices themselves change,
+ * and whose price and quantity columns are kept up to date as the stock
+ * changes, so a snapshot is taken without copying them.
+ * When a MutationLog is attached, every add, remove, update and restock is
+ * appended to it before it is applied, so the inventory can be rebuilt after
+ * a crash. A logged change that is refused after all, because a concurrent
+ * reservation took the units it needed, is followed by a record of the
+ * device's actual stock.
+ * When InventoryMetrics are attached, the latency of every public operation
+ * is recorded in them.
+ * Removals, updates, restocks and listings return their results instead of
+ * printing them; an InventoryRenderer turns the results into output.
+ * Constructed with a ColumnarInventory, the inventory copies every device it
+ * adds into a row of the columns and holds the row's view instead, so the
+ * stock is kept in primitive arrays rather than in one object per device.
  */
 public class Inventory {
 
-    private LinkedList<ArrayList<Device>> deviceLists;
+    private final EnumMap<Category, LinkedHashSet<Device>> deviceLists;
+    private final Map<String, ReservableDevice> devicesByName;
+    private final TreeMap<String, Device> devicesByNameOrder;
+    private final TreeMap<PriceKey, Device> devicesByPrice;
+    private final NameSearchIndex nameSearchIndex;
+    private final AtomicLongArray categoryValueInCents;
+    private final QueryCache<List<Device>> categoryOrderCache;
+    private final QueryCache<List<Device>> priceOrderCache;
+    private final DeviceListener indexMaintainer;
+    private final ColumnarInventory columns;
+    private MutationLog mutationLog;
+    private volatile InventorySnapshot.Layout snapshotLayout;
+    private volatile InventoryMetrics metrics;
+
+    /** Result of applyRestock when no device has the given name. */
+    static final int RESTOCK_NOT_FOUND = -1;
+    /** Result of applyRestock when more stock is removed than available. */
+    static final int RESTOCK_INSUFFICIENT = -2;
+    /** Result of applyRestock when the stock value would not fit in cents. */
+    static final int RESTOCK_TOO_LARGE = -3;
 
     /**
-     * Constructs a new, empty Inventory.
-     * Time Complexity: O(1) - Instantiation of a new LinkedList is a constant time
-     * operation.
+     * Constructs a new, empty Inventory with an empty list for every category.
+     * Time Complexity: O(1) - The number of categories is fixed.
      */
     public Inventory() {
-        deviceLists = new LinkedList<>();
+        this(null);
     }
 
     /**
-     * Adds a new device to the inventory, with time complexity O(n) where n is the
-     * number of categories in the inventory.
-     * It may iterate through all categories to find or create a matching category
-     * list for the device.
-     * Time Complexity: O(n)
+     * Constructs a new, empty Inventory that keeps the stock of its devices in
+     * the given columns.
+     * Time Complexity: O(1) - The number of categories is fixed.
+     *
+     * @param columns The empty columns to copy added devices into, or null to
+     *                hold the added devices themselves.
+     */
+    public Inventory(ColumnarInventory columns) {
+        this.columns = columns;
+        deviceLists = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            deviceLists.put(category, new LinkedHashSet<>());
+        }
+        devicesByName = new HashMap<>();
+        devicesByNameOrder = new TreeMap<>();
+        devicesByPrice = new TreeMap<>();
+        nameSearchIndex = new NameSearchIndex();
+        categoryValueInCents = new AtomicLongArray(Category.values().length);
+        categoryOrderCache = new QueryCache<>();
+        priceOrderCache = new QueryCache<>();
+        indexMaintainer = new IndexMaintainer();
+    }
+
+    /**
+     * Attaches the log that mutations are appended to before they are
+     * applied. Replay the log into this inventory before attaching it, so the
+     * replayed mutations are not logged twice.
+     * Time Complexity: O(1)
+     *
+     * @param mutationLog The log to append to, or null to stop logging.
+     */
+    public void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog;
+    }
+
+    /**
+     * Writes every device to a MappedInventory checkpoint file, then resets
+     * the attached log to the checkpoint's sequence, so the log only holds
+     * the mutations made after the checkpoint.
+     * Time Complexity: O(n * k) where k is the length of a name, plus two
+     * fsyncs.
+     *
+     * @param path     The checkpoint file.
+     * @param sequence The sequence number of the checkpoint, greater than the
+     *                 generation of the attached log.
+     * @throws IOException if the checkpoint cannot be written or the log reset.
+     * @throws IllegalArgumentException if a device cannot be stored in the
+     *                                  checkpoint; the log is then kept.
+     */
+    public void writeCheckpoint(Path path, long sequence) throws IOException {
+        MappedInventory.writeCheckpoint(path, getDevices(), sequence);
+        if (mutationLog != null) {
+            mutationLog.reset(sequence);
+        }
+    }
+
+    /**
+     * Attaches the metrics that the latency of every operation is recorded
+     * in. Without metrics the operations are not timed at all.
+     * Time Complexity: O(1)
+     *
+     * @param metrics The metrics to record in, or null to stop recording.
+     */
+    public void setMetrics(InventoryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the attached metrics.
+     * Time Complexity: O(1)
+     *
+     * @return The metrics, or null if none are attached.
+     */
+    InventoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Adds a new device to the inventory.
+     * The category list is found directly through the category registry.
+     * Devices whose category is not allowed, whose name does not fit in a
+     * checkpoint record, whose stock value does not fit in whole cents, or
+     * whose name is already taken (ignoring case), are rejected.
+     * Time Complexity: O(log n) - Dominated by the insertion into the price
+     * index, where n is the number of devices.
      *
      * @param device The device to be added to the inventory.
+     * @return The result: APPLIED, CATEGORY_NOT_ALLOWED, NAME_TOO_LONG,
+     *         VALUE_TOO_LARGE or DUPLICATE_NAME.
      */
-    public void addDevice(Device device) {
-        // List of allowed categories
-        List<String> allowedCategories = Arrays.asList("Headphones", "TV", "Smart Phone", "Laptop", "Smart Watch");
+    public InventoryResult addDevice(ReservableDevice device) {
+        long start = startTiming();
+        try {
+            // Check if the category of the device is allowed
+            Category category = Category.fromDisplayName(device.getCategory());
+            if (category == null) {
+                return InventoryResult.categoryNotAllowed(device);
+            }
+            // Checked here, so a long name never makes every later checkpoint fail
+            if (!MappedInventory.fitsName(device.getName())) {
+                return InventoryResult.nameTooLong(device);
+            }
+            if (!fitsInCents(device.getPrice(), device.getQuantity())) {
+                return InventoryResult.valueTooLarge(device.getName(), device);
+            }
 
-        // Check if the category of the device is allowed
-        if (!allowedCategories.contains(device.getCategory())) {
-            System.out.println("Category '" + device.getCategory() + "' is not allowed.");
-            return;
+            // Names are unique, ignoring case
+            if (devicesByName.containsKey(nameKey(device.getName()))) {
+                return InventoryResult.duplicateName(device);
+            }
+            if (mutationLog != null) {
+                mutationLog.logAdd(device);
+            }
+            applyAdd(device);
+            return InventoryResult.applied(device.getName(), device, device.getQuantity());
+        } finally {
+            stopTiming(InventoryMetrics.Operation.ADD, start);
         }
+    }
 
-        // Find if there is already an ArrayList for this category
-        for (ArrayList<Device> categoryList : deviceLists) {
-            if (!categoryList.isEmpty() && categoryList.get(0).getCategory().equals(device.getCategory())) {
-                categoryList.add(device);
-                return;
+    /**
+     * Adds a batch of devices. Devices that addDevice would reject are
+     * skipped. Every device that is added is appended to the mutation log, if
+     * one is attached.
+     * Time Complexity: O(k log n) where k is the size of the batch.
+     *
+     * @param devices The devices to add, in order.
+     * @return For each device, true if it was added and false if it was
+     *         skipped.
+     */
+    public boolean[] addDevices(List<? extends ReservableDevice> devices) {
+        long start = startTiming();
+        try {
+            boolean[] added = new boolean[devices.size()];
+            for (int i = 0; i < added.length; i++) {
+                ReservableDevice device = devices.get(i);
+                added[i] = canAdd(device);
+                if (added[i]) {
+                    if (mutationLog != null) {
+                        mutationLog.logAdd(device);
+                    }
+                    applyAdd(device);
+                }
             }
+            return added;
+        } finally {
+            stopTiming(InventoryMetrics.Operation.ADD_BATCH, start);
         }
-        // No ArrayList for this category exists, so create one and add it
-        ArrayList<Device> newCategoryList = new ArrayList<>();
-        newCategoryList.add(device);
-        deviceLists.add(newCategoryList);
+    }
+
+    /**
+     * Checks whether applyAdd would accept a device, without changing
+     * anything, so the add can be logged before it is applied.
+     * Time Complexity: O(1)
+     *
+     * @param device The device to be added to the inventory.
+     * @return true if the category is allowed, the name fits in a checkpoint
+     *         record, the stock value fits in whole cents and the name is free.
+     */
+    private boolean canAdd(Device device) {
+        return Category.fromDisplayName(device.getCategory()) != null
+                && MappedInventory.fitsName(device.getName())
+                && fitsInCents(device.getPrice(), device.getQuantity())
+                && !devicesByName.containsKey(nameKey(device.getName()));
+    }
+
+    /**
+     * Adds a device without console output or logging.
+     * Time Complexity: O(log n)
+     *
+     * @param device The device to be added to the inventory.
+     * @return true if the device was added, false if its category is not
+     *         allowed, its name does not fit in a checkpoint record, its stock
+     *         value does not fit in whole cents or its name is already taken.
+     */
+    boolean applyAdd(ReservableDevice device) {
+        Category category = Category.fromDisplayName(device.getCategory());
+        if (category == null || !MappedInventory.fitsName(device.getName())
+                || !fitsInCents(device.getPrice(), device.getQuantity())) {
+            return false;
+        }
+        // Computed before any index is touched, so a rejected device leaves no trace
+        long value = valueInCents(device.getPrice(), device.getQuantity());
+        String key = nameKey(device.getName());
+        if (devicesByName.containsKey(key)) {
+            return false;
+        }
+        if (columns != null) {
+            device = columns.store(device); // Held instead of the device passed in
+        }
+        devicesByName.put(key, device);
+        devicesByNameOrder.put(key, device);
+        devicesByPrice.put(new PriceKey(device.getPrice(), key), device);
+        nameSearchIndex.add(device, key);
+        deviceLists.get(category).add(device);
+        addValue(category, value);
+        categoryOrderCache.invalidate();
+        priceOrderCache.invalidate();
+        snapshotLayout = null;
+        device.setListener(indexMaintainer);
+        return true;
     }
 
     /**
      * Removes a device from the inventory based on the device name.
-     * Time Complexity: O(n*m) - In the worst-case scenario, where n is the number
-     * of device categories and m is
-     * the average number of devices per category. This accounts for iterating
-     * through all categories and, within each,
-     * potentially searching through all devices to find and remove the specified
-     * device, including the cost of shifting elements in the ArrayList.
+     * Time Complexity: O(log n + k log k) - The device is found through the
+     * name index, removed from its category set in O(1), from the price index
+     * in O(log n) and from the name search index in O(k log k), where k is
+     * the length of its name.
      *
      * @param deviceName The name of the device to be removed.
+     * @return The result, holding the removed device.
      */
-    public void removeDevice(String deviceName) {
-        boolean deviceRemoved = false;
-        System.out.println("-------------------------------------------------------");
-        for (ArrayList<Device> deviceList : deviceLists) {
-            for (int i = 0; i < deviceList.size(); i++) {
-                if (deviceList.get(i).getName().equalsIgnoreCase(deviceName)) {
-                    deviceList.remove(i);
-                    System.out.println("Device " + deviceName + " removed.");
-                    deviceRemoved = true;
-                    break; // Break out of the inner loop
-                }
+    public InventoryResult removeDevice(String deviceName) {
+        long start = startTiming();
+        try {
+            Device device = devicesByName.get(nameKey(deviceName));
+            if (device == null) {
+                return InventoryResult.notFound(deviceName);
             }
-
-            if (deviceRemoved) {
-                System.out.println("-------------------------------------------------------");
-                break; // Break out of the outer loop if the device was removed
+            if (mutationLog != null) {
+                mutationLog.logRemove(deviceName);
             }
+            applyRemove(deviceName);
+            return InventoryResult.applied(deviceName, device, device.getQuantity());
+        } finally {
+            stopTiming(InventoryMetrics.Operation.REMOVE, start);
         }
+    }
 
-        if (!deviceRemoved) {
-            System.out.println("Device " + deviceName + " not found.");
-            System.out.println("-------------------------------------------------------");
+    /**
+     * Removes a batch of devices without console output. Every device that is
+     * removed is appended to the mutation log, if one is attached.
+     * Time Complexity: O(k log n) where k is the size of the batch.
+     *
+     * @param deviceNames The names of the devices to remove, in order.
+     * @return For each name, true if a device was removed and false if none
+     *         was found.
+     */
+    public boolean[] removeDevices(List<String> deviceNames) {
+        long start = startTiming();
+        try {
+            boolean[] removed = new boolean[deviceNames.size()];
+            for (int i = 0; i < removed.length; i++) {
+                String deviceName = deviceNames.get(i);
+                removed[i] = devicesByName.containsKey(nameKey(deviceName));
+                if (removed[i]) {
+                    if (mutationLog != null) {
+                        mutationLog.logRemove(deviceName);
+                    }
+                    applyRemove(deviceName);
+                }
+            }
+            return removed;
+        } finally {
+            stopTiming(InventoryMetrics.Operation.REMOVE_BATCH, start);
         }
+    }
 
+    /**
+     * Removes a device without console output or logging.
+     * Time Complexity: O(log n + k log k) where k is the length of the name.
+     *
+     * @param deviceName The name of the device to be removed.
+     * @return The removed device, or null if it was not found.
+     */
+    Device applyRemove(String deviceName) {
+        String key = nameKey(deviceName);
+        Device device = devicesByName.remove(key);
+        if (device == null) {
+            return null;
+        }
+        device.setListener(null);
+        devicesByNameOrder.remove(key);
+        devicesByPrice.remove(new PriceKey(device.getPrice(), key));
+        nameSearchIndex.remove(device, key);
+        Category category = Category.fromDisplayName(device.getCategory());
+        deviceLists.get(category).remove(device);
+        addValue(category, -valueInCents(device.getPrice(), device.getQuantity()));
+        categoryOrderCache.invalidate();
+        priceOrderCache.invalidate();
+        snapshotLayout = null;
+        if (columns != null) {
+            columns.removeDevice(deviceName); // The view keeps the removed values
+        }
+        return device;
     }
 
     /**
      * Checks if a device exists in the inventory based on the device name.
-     * Time Complexity: O(n*m) - Reflects iterating through all categories (n) and
-     * devices per category (m) in the worst case.
+     * Time Complexity: O(1) - A single lookup in the name index.
      *
      * @param deviceName The name of the device to be checked.
      * @return true if the device exists, false otherwise.
      */
     public boolean deviceExists(String deviceName) {
-        for (ArrayList<Device> deviceList : deviceLists) {
-            for (Device device : deviceList) {
-                if (device.getName().equalsIgnoreCase(deviceName)) {
-                    return true;
+        long start = startTiming();
+        try {
+            return devicesByName.containsKey(nameKey(deviceName));
+        } finally {
+            stopTiming(InventoryMetrics.Operation.LOOKUP, start);
+        }
+    }
+
+    /**
+     * Returns the device with the given name, ignoring case.
+     * Time Complexity: O(1) - A single lookup in the name index.
+     *
+     * @param deviceName The name of the device to look up.
+     * @return The matching device, or null if there is none.
+     */
+    public ReservableDevice getDevice(String deviceName) {
+        long start = startTiming();
+        try {
+            return devicesByName.get(nameKey(deviceName));
+        } finally {
+            stopTiming(InventoryMetrics.Operation.LOOKUP, start);
+        }
+    }
+
+    /**
+     * Returns the devices whose name starts with the given text, ignoring
+     * case, ordered by name.
+     * Time Complexity: O(log n + k) - A range of the name-ordered index, where
+     * k is the number of devices returned.
+     *
+     * @param prefix The start of the names to find.
+     * @param limit  The maximum number of devices to return.
+     * @return The matching devices, at most limit of them.
+     * @throws IllegalArgumentException if limit is negative.
+     */
+    public List<Device> findDevicesByNamePrefix(String prefix, int limit) {
+        long start = startTiming();
+        try {
+            requireLimit(limit);
+            String from = nameKey(prefix);
+            // Every key starting with the prefix sorts below the prefix followed by the highest char
+            Collection<Device> range = devicesByNameOrder.subMap(from, true, from + Character.MAX_VALUE, false).values();
+            List<Device> devices = new ArrayList<>(Math.min(limit, 16));
+            for (Device device : range) {
+                if (devices.size() == limit) {
+                    break;
                 }
+                devices.add(device);
             }
+            return devices;
+        } finally {
+            stopTiming(InventoryMetrics.Operation.SEARCH, start);
+        }
+    }
+
+    /**
+     * Returns the devices whose name contains the given text, ignoring case,
+     * ordered by name; e.g. "g3" finds "Dell G3 15".
+     * The name search index yields the candidates sharing the rarest gram of
+     * the text. When there are few, they are checked and sorted; when there
+     * are so many that a match is likely within the first few names, the
+     * name-ordered index is scanned instead and the scan stops after limit
+     * matches. Single characters are always answered by the scan.
+     * Time Complexity: O(q + min(p * k + m log m, limit * n / p)) where p is
+     * the number of candidates, k the length of a name and m the number of
+     * matches.
+     *
+     * @param text  The text the names must contain.
+     * @param limit The maximum number of devices to return.
+     * @return The matching devices, at most limit of them.
+     * @throws IllegalArgumentException if limit is negative.
+     */
+    public List<Device> searchDevicesByName(String text, int limit) {
+        long start = startTiming();
+        try {
+            requireLimit(limit);
+            String query = nameKey(text);
+            if (query.length() < NameSearchIndex.MIN_QUERY_LENGTH) {
+                return scanNames(query, limit);
+            }
+            List<Device> candidates = nameSearchIndex.candidates(query);
+            // Scanning in name order finds limit matches in about limit * n / p steps
+            long candidateCount = candidates.size();
+            if (candidateCount * candidateCount > (long) limit * devicesByName.size()) {
+                return scanNames(query, limit);
+            }
+            TreeMap<String, Device> matches = new TreeMap<>();
+            for (Device device : candidates) {
+                String key = nameKey(device.getName());
+                if (key.contains(query)) {
+                    matches.put(key, device);
+                }
+            }
+            List<Device> devices = new ArrayList<>(Math.min(limit, matches.size()));
+            for (Device device : matches.values()) {
+                if (devices.size() == limit) {
+                    break;
+                }
+                devices.add(device);
+            }
+            return devices;
+        } finally {
+            stopTiming(InventoryMetrics.Operation.SEARCH, start);
+        }
+    }
+
+    /**
+     * Walks the name-ordered index and collects the devices whose name key
+     * contains the query.
+     * Time Complexity: O(s * k) where s is the number of names visited before
+     * limit matches are found, at most n.
+     *
+     * @param query The normalized query.
+     * @param limit The maximum number of devices to return.
+     * @return The matching devices, ordered by name.
+     */
+    private List<Device> scanNames(String query, int limit) {
+        List<Device> devices = new ArrayList<>(Math.min(limit, 16));
+        for (Map.Entry<String, Device> entry : devicesByNameOrder.entrySet()) {
+            if (devices.size() == limit) {
+                break;
+            }
+            if (entry.getKey().contains(query)) {
+                devices.add(entry.getValue());
+            }
+        }
+        return devices;
+    }
+
+    /**
+     * Checks the result limit of a search.
+     * Time Complexity: O(1)
+     *
+     * @param limit The maximum number of results.
+     * @throws IllegalArgumentException if limit is negative.
+     */
+    private static void requireLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The limit must not be negative: " + limit);
         }
-        return false;
     }
 
     /**
      * Updates the details of a device identified by its name, setting a new price
      * and quantity if specified.
-     * Time Complexity: O(n*m) - Requires iterating through all categories (n) and
-     * potentially all devices within those categories (m) to find the matching
-     * device.
+     * Time Complexity: O(log n) - The device is found through the name index in
+     * O(1); a price change re-keys it in the price index.
      *
      * @param deviceName  The name of the device to be updated.
      * @param newPrice    The new price to be set for the device. If less than or
      *                    equal to 0, the price is not updated.
      * @param newQuantity The new quantity to be set for the device. If less than 0,
      *                    the quantity is not updated.
+     * @return The result, holding the price and quantity after the update.
      */
-    public void updateDeviceDetails(String deviceName, double newPrice, int newQuantity) {
-        System.out.println("-------------------------------------------------------");
-        boolean found = false;
-        for (ArrayList<Device> deviceList : deviceLists) {
-            for (Device device : deviceList) {
-                if (device.getName().equalsIgnoreCase(deviceName)) {
-                    found = true;
-                    if (newPrice > 0) {
-                        device.setPrice(newPrice);
-                    }
-                    if (newQuantity >= 0) {
-                        device.setQuantity(newQuantity);
+    public InventoryResult updateDeviceDetails(String deviceName, double newPrice, int newQuantity) {
+        long start = startTiming();
+        try {
+            Device device = devicesByName.get(nameKey(deviceName));
+            if (device == null) {
+                return InventoryResult.notFound(deviceName);
+            }
+            if (mutationLog != null) {
+                mutationLog.logUpdate(deviceName, newPrice, newQuantity);
+            }
+            InventoryResult result = applyUpdate(deviceName, newPrice, newQuantity);
+            if (!result.isApplied() && mutationLog != null) {
+                logRefused(deviceName, device);
+            }
+            return result;
+        } finally {
+            stopTiming(InventoryMetrics.Operation.UPDATE, start);
+        }
+    }
+
+    /**
+     * Updates the details of a device without console output or logging.
+     * The quantity is changed first, as it is the only change a concurrent
+     * reservation can refuse; the update is refused as a whole if the new
+     * quantity is below the reserved units, or if the stock value would not
+     * fit in whole cents after either change.
+     * Time Complexity: O(log n)
+     *
+     * @param deviceName  The name of the device to be updated.
+     * @param newPrice    The new price, ignored if less than or equal to 0.
+     * @param newQuantity The new quantity, ignored if less than 0.
+     * @return The result, holding the price and quantity after the update.
+     */
+    InventoryResult applyUpdate(String deviceName, double newPrice, int newQuantity) {
+        ReservableDevice device = devicesByName.get(nameKey(deviceName));
+        if (device == null) {
+            return InventoryResult.notFound(deviceName);
+        }
+        int quantity = newQuantity >= 0 ? newQuantity : device.getQuantity();
+        if (!fitsInCents(device.getPrice(), quantity)
+                || !fitsInCents(newPrice > 0 ? newPrice : device.getPrice(), quantity)) {
+            return InventoryResult.valueTooLarge(deviceName, device);
+        }
+        if (newQuantity >= 0) {
+            try {
+                device.setQuantity(newQuantity);
+            } catch (IllegalStateException e) {
+                return InventoryResult.insufficientStock(deviceName, device); // Below the reserved units
+            }
+        }
+        if (newPrice > 0) {
+            device.setPrice(newPrice);
+        }
+        return InventoryResult.applied(deviceName, device, device.getQuantity());
+    }
+
+    /**
+     * Applies a batch of restock, price and quantity operations without
+     * console output. All device names are resolved through the name index
+     * first, then the operations are applied in order, so several operations
+     * on the same device see each other's effects. Every applied operation is
+     * appended to the mutation log, if one is attached.
+     * Time Complexity: O(k log n) where k is the size of the batch; price
+     * changes re-key the price index.
+     *
+     * @param operations The operations to apply, in order.
+     * @return One result per operation, in the same order.
+     */
+    public List<StockOperationResult> applyBatch(List<StockOperation> operations) {
+        long start = startTiming();
+        try {
+            int size = operations.size();
+            // Resolve every target once, before anything is changed
+            ReservableDevice[] targets = new ReservableDevice[size];
+            for (int i = 0; i < size; i++) {
+                targets[i] = devicesByName.get(nameKey(operations.get(i).getDeviceName()));
+            }
+
+            List<StockOperationResult> results = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                StockOperation operation = operations.get(i);
+                ReservableDevice device = targets[i];
+                StockOperationResult.Status status = device == null
+                        ? StockOperationResult.Status.NOT_FOUND
+                        : applyOperation(operation, device);
+                results.add(device == null
+                        ? new StockOperationResult(operation, status, 0, 0)
+                        : new StockOperationResult(operation, status, device.getPrice(), device.getQuantity()));
+            }
+            return results;
+        } finally {
+            stopTiming(InventoryMetrics.Operation.BATCH, start);
+        }
+    }
+
+    /**
+     * Logs one batch operation and applies it to its resolved device. Changes
+     * whose stock value would not fit in whole cents are refused as invalid.
+     * Time Complexity: O(log n)
+     *
+     * @param operation The operation.
+     * @param device    The target device.
+     * @return The outcome of the operation.
+     */
+    private StockOperationResult.Status applyOperation(StockOperation operation, ReservableDevice device) {
+        String deviceName = operation.getDeviceName();
+        int quantity = operation.getQuantity();
+        StockOperation.Type type = operation.getType();
+        if (type == StockOperation.Type.SET_PRICE ? !(operation.getPrice() > 0) : quantity < 0) {
+            return StockOperationResult.Status.INVALID_ARGUMENT;
+        }
+        if (mutationLog != null) {
+            switch (type) {
+                case ADD_STOCK:
+                    mutationLog.logRestock(deviceName, quantity, true);
+                    break;
+                case REMOVE_STOCK:
+                    mutationLog.logRestock(deviceName, quantity, false);
+                    break;
+                case SET_PRICE:
+                    mutationLog.logUpdate(deviceName, operation.getPrice(), -1);
+                    break;
+                case SET_QUANTITY:
+                default:
+                    mutationLog.logUpdate(deviceName, -1, quantity);
+                    break;
+            }
+        }
+        StockOperationResult.Status status;
+        try {
+            switch (type) {
+                case ADD_STOCK:
+                    status = device.adjustQuantity(quantity)
+                            ? StockOperationResult.Status.APPLIED
+                            : StockOperationResult.Status.INVALID_ARGUMENT; // Would overflow
+                    break;
+                case REMOVE_STOCK:
+                    status = device.adjustQuantity(-quantity)
+                            ? StockOperationResult.Status.APPLIED
+                            : StockOperationResult.Status.INSUFFICIENT_STOCK;
+                    break;
+                case SET_PRICE:
+                    device.setPrice(operation.getPrice());
+                    status = StockOperationResult.Status.APPLIED;
+                    break;
+                case SET_QUANTITY:
+                default:
+                    try {
+                        device.setQuantity(quantity);
+                        status = StockOperationResult.Status.APPLIED;
+                    } catch (IllegalStateException e) {
+                        status = StockOperationResult.Status.INSUFFICIENT_STOCK; // Below the reserved units
                     }
-                    System.out.println(device.getName() + " details updated: Price - " +
-                            String.format("%.2f$", device.getPrice()) + ", Quantity - " + device.getQuantity());
                     break;
-                }
             }
+        } catch (ArithmeticException e) {
+            // The device vetoed a stock value that does not fit in whole cents
+            status = StockOperationResult.Status.INVALID_ARGUMENT;
         }
-        if (!found) {
-            System.out.println("Device " + deviceName + " not found.");
+        if (status != StockOperationResult.Status.APPLIED && mutationLog != null) {
+            logRefused(deviceName, device);
         }
-        System.out.println("-------------------------------------------------------");
+        return status;
+    }
+
+    /**
+     * Logs the actual stock of a device after a change that was logged ahead
+     * of it was refused, so replaying the log ends in the state the device is
+     * really in; replay has no reservations and could apply the change.
+     * Time Complexity: O(k) where k is the length of the name.
+     *
+     * @param deviceName The name the change was logged under.
+     * @param device     The unchanged device.
+     */
+    private void logRefused(String deviceName, Device device) {
+        mutationLog.logUpdate(deviceName, device.getPrice(), device.getQuantity());
     }
 
     /**
-     * Displays all devices, with a detailed list.
-     * Time Complexity: O(n*m) - Requires iterating through all categories (n) and
-     * potentially all devices within those categories (m) to list each device.
+     * Commits units previously reserved on a device, taking them out of the
+     * stock, and appends the removal to the mutation log so it survives a
+     * crash. Reservations themselves are made directly on the device with
+     * ReservableDevice.reserve and are not logged, as they do not change the stock.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The name of the device.
+     * @param units      The number of reserved units to commit.
+     * @return true if the units were committed, false if the device was not
+     *         found.
+     * @throws IllegalStateException if fewer units are reserved.
      */
-    public void listAllDevices() {
-        int counter = 1; // Initialize a counter for the devices
-        System.out.println("-------------------------------------------------------");
-        System.out.println("Device List:");
-        for (ArrayList<Device> deviceList : deviceLists) {
-            for (Device device : deviceList) {
-                System.out.println(counter + ". Category: " + device.getCategory() +
-                        ", Name: " + device.getName() +
-                        ", Price: " + String.format("%.2f$", device.getPrice()) + // Formatted to show two decimal
-                                                                                  // places
-                        ", Quantity: " + device.getQuantity());
-                counter++; // Increment the counter for each device listed
+    public boolean commitReservation(String deviceName, int units) {
+        long start = startTiming();
+        try {
+            ReservableDevice device = devicesByName.get(nameKey(deviceName));
+            if (device == null) {
+                return false;
+            }
+            if (mutationLog != null) {
+                mutationLog.logRestock(deviceName, units, false);
             }
+            try {
+                device.commit(units);
+            } catch (RuntimeException e) {
+                if (mutationLog != null) {
+                    logRefused(deviceName, device);
+                }
+                throw e;
+            }
+            return true;
+        } finally {
+            stopTiming(InventoryMetrics.Operation.COMMIT, start);
+        }
+    }
+
+    /**
+     * Returns all devices for a detailed list, in the same order as getDevices.
+     * Use an InventoryRenderer to display them.
+     * Time Complexity: O(1) if the listing is cached, otherwise O(n).
+     *
+     * @return A read-only list of the devices.
+     */
+    public List<Device> listAllDevices() {
+        return getDevices();
+    }
+
+    /**
+     * Returns all devices ordered by category, then in the order they were
+     * added. The list is cached until a device is added, removed or moved to
+     * another category.
+     * Time Complexity: O(1) if the listing is cached, otherwise O(n) - The
+     * devices are copied into a new list.
+     *
+     * @return A read-only list of the devices.
+     */
+    public List<Device> getDevices() {
+        long start = startTiming();
+        try {
+            return categoryOrderCache.get(() -> {
+                List<Device> devices = new ArrayList<>(devicesByName.size());
+                for (LinkedHashSet<Device> deviceList : deviceLists.values()) {
+                    devices.addAll(deviceList);
+                }
+                return Collections.unmodifiableList(devices);
+            });
+        } finally {
+            stopTiming(InventoryMetrics.Operation.LIST, start);
         }
-        System.out.println("-------------------------------------------------------");
     }
 
     /**
      * Finds and returns the device with the minimum price in the inventory.
-     * Time Complexity: O(n*m) - Requires iterating through all categories (n) and
-     * potentially all devices within those categories (m) to find the device with
-     * the lowest price.
+     * Ties are broken by name, ignoring case.
+     * Time Complexity: O(log n) - The first entry of the price index.
      *
      * @return The device with the lowest price, or null if the inventory is empty.
      */
     public Device findCheapestDevice() {
-        Device cheapestDevice = null;
-        double cheapestPrice = Double.MAX_VALUE; // Start with the max possible value
-
-        for (ArrayList<Device> deviceList : deviceLists) {
-            for (Device device : deviceList) {
-                if (device.getPrice() < cheapestPrice) {
-                    cheapestDevice = device;
-                    cheapestPrice = device.getPrice();
-                }
-            }
+        long start = startTiming();
+        try {
+            Map.Entry<PriceKey, Device> cheapest = devicesByPrice.firstEntry();
+            return cheapest == null ? null : cheapest.getValue(); // null if no devices are in the inventory
+        } finally {
+            stopTiming(InventoryMetrics.Operation.CHEAPEST, start);
         }
+    }
 
-        return cheapestDevice; // This could be null if no devices are in the inventory
+    /**
+     * Returns all devices ordered by ascending price, with ties broken by name.
+     * The collection is a read-only live view of the price index.
+     * Time Complexity: O(1) - No copy or sort is made.
+     *
+     * @return The devices ordered by price.
+     */
+    public Collection<Device> getDevicesSortedByPrice() {
+        long start = startTiming();
+        try {
+            return Collections.unmodifiableCollection(devicesByPrice.values());
+        } finally {
+            stopTiming(InventoryMetrics.Operation.SORT, start);
+        }
+    }
+
+    /**
+     * Returns the devices whose price lies within the given range, both ends
+     * inclusive, ordered by ascending price.
+     * Time Complexity: O(log n + k) - Where k is the number of matching devices.
+     *
+     * @param minPrice The lowest price to include.
+     * @param maxPrice The highest price to include.
+     * @return The matching devices, or an empty list if minPrice is greater than
+     *         maxPrice.
+     */
+    public List<Device> findDevicesInPriceRange(double minPrice, double maxPrice) {
+        long start = startTiming();
+        try {
+            if (minPrice > maxPrice) {
+                return new ArrayList<>();
+            }
+            // The empty name sorts before every other name at the same price
+            PriceKey from = new PriceKey(minPrice, "");
+            PriceKey to = new PriceKey(Math.nextUp(maxPrice), "");
+            return new ArrayList<>(devicesByPrice.subMap(from, true, to, false).values());
+        } finally {
+            stopTiming(InventoryMetrics.Operation.PRICE_RANGE, start);
+        }
     }
 
     /**
-     * Sorts the devices in the inventory by their price in ascending order.
-     * Time Complexity: O(n*m log(n*m)) - Collects all devices into a single list to
-     * sort,
-     * where n is the number of categories and m is the average number of devices
-     * per category.
+     * Returns the k best ranked devices across all categories, e.g. the 20
+     * cheapest devices or the 50 most valuable lines.
+     * Time Complexity: O(log n + k) for the price rankings, which read the head
+     * or tail of the price index; O(n log k) for the others, which keep a
+     * bounded heap. The inventory is never sorted as a whole.
+     *
+     * @param ranking The order to rank by.
+     * @param k       The maximum number of devices to return.
+     * @return The best ranked devices, best first.
+     * @throws IllegalArgumentException if k is negative.
      */
-    public void sortDevicesByPrice() {
-        // Create a list to hold all devices
-        List<Device> allDevices = new ArrayList<>();
+    public List<Device> findTopDevices(Ranking ranking, int k) {
+        return findTopDevices(ranking, null, k);
+    }
 
-        // Collect all devices from each category into allDevices
-        for (ArrayList<Device> deviceList : deviceLists) {
-            allDevices.addAll(deviceList);
+    /**
+     * Returns the k best ranked devices of one category, e.g. the 20 cheapest
+     * laptops.
+     * Time Complexity: O(log n + k) for the price rankings over all
+     * categories, otherwise O(c log k) where c is the number of candidates.
+     *
+     * @param ranking  The order to rank by.
+     * @param category The category to rank, or null for all categories.
+     * @param k        The maximum number of devices to return.
+     * @return The best ranked devices, best first.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    public List<Device> findTopDevices(Ranking ranking, Category category, int k) {
+        long start = startTiming();
+        try {
+            if (k < 0) {
+                throw new IllegalArgumentException("k must not be negative: " + k);
+            }
+            if (k == 0) {
+                return new ArrayList<>();
+            }
+            if (category == null && ranking.isByPrice()) {
+                // The price index is already in order; take its head or tail
+                Collection<Device> ordered = ranking.isDescending()
+                        ? devicesByPrice.descendingMap().values()
+                        : devicesByPrice.values();
+                List<Device> devices = new ArrayList<>(Math.min(k, devicesByPrice.size()));
+                for (Device device : ordered) {
+                    if (devices.size() == k) {
+                        break;
+                    }
+                    devices.add(device);
+                }
+                return devices;
+            }
+            return ranking.select(category == null ? devicesByName.values() : deviceLists.get(category), k);
+        } finally {
+            stopTiming(InventoryMetrics.Operation.TOP, start);
         }
+    }
 
-        // Sort allDevices by price
-        allDevices.sort(Comparator.comparingDouble(Device::getPrice));
+    /**
+     * Returns one page of devices ordered by name or by price, optionally
+     * limited to one category. Pages are read lazily from the ordered
+     * indexes, starting right after the position of the cursor, so fetching a
+     * page never walks the devices before it.
+     * Time Complexity: O(log n + p) for all categories, where p is the page
+     * size; with a category filter, devices of other categories met on the
+     * way are skipped, O(log n + p * n / c) on average where c is the size of
+     * the category.
+     *
+     * @param cursor   PageCursor.first for the first page, otherwise the next
+     *                 cursor of the previous page.
+     * @param pageSize The maximum number of devices on the page.
+     * @return The page and the cursor of the next page.
+     * @throws IllegalArgumentException if pageSize is less than 1.
+     */
+    public DevicePage getPage(PageCursor cursor, int pageSize) {
+        long start = startTiming();
+        try {
+            if (pageSize < 1) {
+                throw new IllegalArgumentException("The page size must be at least 1: " + pageSize);
+            }
+            Collection<Device> ordered;
+            if (cursor.getOrder() == PageCursor.Order.NAME) {
+                ordered = cursor.isFirst() ? devicesByNameOrder.values()
+                        : devicesByNameOrder.tailMap(cursor.getLastNameKey(), false).values();
+            } else {
+                ordered = cursor.isFirst() ? devicesByPrice.values()
+                        : devicesByPrice.tailMap(new PriceKey(cursor.getLastPrice(), cursor.getLastNameKey()), false)
+                                .values();
+            }
 
-        // Print sorted devices
-        System.out.println("Devices sorted by price:");
-        System.out.println("-------------------------------------------------------");
-        int count = 1;
-        for (Device device : allDevices) {
+            Category category = cursor.getCategory();
+            List<Device> devices = new ArrayList<>(pageSize);
+            boolean hasMore = false;
+            for (Device device : ordered) {
+                if (category != null && Category.fromDisplayName(device.getCategory()) != category) {
+                    continue;
+                }
+                if (devices.size() == pageSize) {
+                    hasMore = true; // Only look one device ahead
+                    break;
+                }
+                devices.add(device);
+            }
+            return new DevicePage(devices, hasMore ? cursor.after(devices.get(pageSize - 1)) : null);
+        } finally {
+            stopTiming(InventoryMetrics.Operation.PAGE, start);
+        }
+    }
 
-            System.out.println(count + ". Category: " + device.getCategory() +
-                    ", Name: " + device.getName() +
-                    ", Price: " + String.format("%.2f$", device.getPrice()) +
-                    ", Quantity: " + device.getQuantity());
-            count++;
+    /**
+     * Returns the devices in the inventory by their price in ascending order.
+     * Use an InventoryRenderer to display them. The list is cached until a
+     * device is added, removed, renamed or repriced.
+     * Time Complexity: O(1) if the listing is cached, otherwise O(n) - The
+     * price index is already sorted, so the devices are copied in a single
+     * pass.
+     *
+     * @return A read-only list of the devices ordered by price.
+     */
+    public List<Device> sortDevicesByPrice() {
+        long start = startTiming();
+        try {
+            return priceOrderCache.get(() -> Collections.unmodifiableList(new ArrayList<>(devicesByPrice.values())));
+        } finally {
+            stopTiming(InventoryMetrics.Operation.SORT, start);
         }
-        System.out.println("-------------------------------------------------------");
     }
 
     /**
-     * Calculates and returns the total value of all the devices in the inventory.
-     * Time Complexity: O(n*m) - Requires iterating through all categories (n) and
-     * each device within those categories (m) to sum the value of every device.
+     * Gets the number of full listings answered from the cache since the
+     * inventory was created.
+     * Time Complexity: O(1)
+     *
+     * @return The hit count of getDevices and sortDevicesByPrice together.
+     */
+    public long getQueryCacheHits() {
+        return categoryOrderCache.getHits() + priceOrderCache.getHits();
+    }
+
+    /**
+     * Gets the number of full listings that had to be built since the
+     * inventory was created.
+     * Time Complexity: O(1)
+     *
+     * @return The miss count of getDevices and sortDevicesByPrice together.
+     */
+    public long getQueryCacheMisses() {
+        return categoryOrderCache.getMisses() + priceOrderCache.getMisses();
+    }
+
+    /**
+     * Returns the total value of all the devices in the inventory.
+     * Prices are counted in whole cents.
+     * Time Complexity: O(1) - The total is maintained as devices change.
      *
      * @return The total inventory value as a double.
      */
     public double calculateTotalInventoryValue() {
-        double totalValue = 0;
+        return getTotalInventoryValueInCents() / 100.0;
+    }
 
-        // Iterate through each category
-        for (ArrayList<Device> deviceList : deviceLists) {
-            // Iterate through each device in the category
-            for (Device device : deviceList) {
-                // Add the device's value (price * quantity) to the total
-                totalValue += device.getPrice() * device.getQuantity();
+    /**
+     * Returns the exact total value of all the devices in the inventory.
+     * Time Complexity: O(1) - The sum of the maintained category values.
+     *
+     * @return The total inventory value in cents.
+     */
+    public long getTotalInventoryValueInCents() {
+        long start = startTiming();
+        try {
+            long total = 0;
+            for (int i = 0; i < categoryValueInCents.length(); i++) {
+                total += categoryValueInCents.get(i);
             }
+            return total;
+        } finally {
+            stopTiming(InventoryMetrics.Operation.VALUE, start);
         }
+    }
+
+    /**
+     * Returns the total value of the devices in one category.
+     * Time Complexity: O(1) - The total is maintained as devices change.
+     *
+     * @param category The category to value.
+     * @return The value of the category as a double.
+     */
+    public double calculateCategoryValue(Category category) {
+        return getCategoryValueInCents(category) / 100.0;
+    }
 
-        return totalValue;
+    /**
+     * Returns the exact value of the devices in one category.
+     * Time Complexity: O(1) - The value is maintained as devices change.
+     *
+     * @param category The category to value.
+     * @return The value of the category in cents.
+     */
+    public long getCategoryValueInCents(Category category) {
+        long start = startTiming();
+        try {
+            return categoryValueInCents.get(category.ordinal());
+        } finally {
+            stopTiming(InventoryMetrics.Operation.VALUE, start);
+        }
     }
 
     /**
      * Updates the quantity of a device in the inventory, either adding or removing
      * stock as specified.
-     * Time Complexity: O(n*m) - Requires searching through all categories (n) and
-     * potentially all devices within those categories (m) to find the specific
-     * device to restock.
+     * Time Complexity: O(1) - The device is found through the name index.
+     *
+     * @param deviceName     The name of the device to be restocked.
+     * @param quantityChange The amount of quantity to add or remove.
+     * @param addStock       True to add stock, false to remove stock.
+     * @return The result, holding the new quantity.
+     */
+    public InventoryResult restockDevice(String deviceName, int quantityChange, boolean addStock) {
+        long start = startTiming();
+        try {
+            ReservableDevice device = devicesByName.get(nameKey(deviceName));
+            if (device == null) {
+                return InventoryResult.notFound(deviceName);
+            }
+            // Not worth logging when it is bound to fail; a concurrent reservation can still refuse it below
+            if (!addStock && quantityChange > device.getAvailableQuantity()) {
+                return InventoryResult.insufficientStock(deviceName, device);
+            }
+            if (mutationLog != null) {
+                mutationLog.logRestock(deviceName, quantityChange, addStock);
+            }
+            int newQuantity = applyRestock(deviceName, quantityChange, addStock);
+            if (newQuantity < 0 && mutationLog != null) {
+                logRefused(deviceName, device);
+            }
+            if (newQuantity == RESTOCK_INSUFFICIENT) {
+                return InventoryResult.insufficientStock(deviceName, device);
+            }
+            if (newQuantity == RESTOCK_TOO_LARGE) {
+                return InventoryResult.valueTooLarge(deviceName, device);
+            }
+            return InventoryResult.applied(deviceName, device, newQuantity);
+        } finally {
+            stopTiming(InventoryMetrics.Operation.RESTOCK, start);
+        }
+    }
+
+    /**
+     * Adds or removes stock without console output or logging.
+     * Time Complexity: O(1)
      *
      * @param deviceName     The name of the device to be restocked.
      * @param quantityChange The amount of quantity to add or remove.
      * @param addStock       True to add stock, false to remove stock.
+     * @return The new quantity, RESTOCK_NOT_FOUND if the device does not exist,
+     *         RESTOCK_INSUFFICIENT if more stock would be removed than is
+     *         available, reserved units excluded, or RESTOCK_TOO_LARGE if the
+     *         stock value would not fit in whole cents.
+     */
+    int applyRestock(String deviceName, int quantityChange, boolean addStock) {
+        ReservableDevice device = devicesByName.get(nameKey(deviceName));
+        if (device == null) {
+            return RESTOCK_NOT_FOUND;
+        }
+        // Removals cannot take reserved units, so stock never goes negative
+        try {
+            if (!device.adjustQuantity(addStock ? quantityChange : -quantityChange)) {
+                return RESTOCK_INSUFFICIENT;
+            }
+        } catch (ArithmeticException e) {
+            return RESTOCK_TOO_LARGE; // Vetoed by the index maintainer; the device is unchanged
+        }
+        return device.getQuantity();
+    }
+
+    /**
+     * Exports the inventory list to a file named "inventory.txt".
+     * Time Complexity: O(n) - Every device's details are streamed to the file
+     * once; the summary total is maintained incrementally.
+     *
+     * @return The outcome of the export.
+     */
+    public ExportResult exportInventoryToFile() {
+        return exportInventoryToFile(Paths.get("inventory.txt"), InventoryExporter.Format.TEXT);
+    }
+
+    /**
+     * Exports the inventory list to the given file in the given format. Rows
+     * are streamed from a snapshot to the file as they are formatted, so no
+     * formatted copy of the report is held in memory.
+     * Time Complexity: O(n) - Every device's details are written once.
+     *
+     * @param path   The file to write.
+     * @param format The report format.
+     * @return The outcome of the export.
+     */
+    public ExportResult exportInventoryToFile(Path path, InventoryExporter.Format format) {
+        try {
+            writeReport(path, format);
+            return ExportResult.exported(path);
+        } catch (IOException e) {
+            return ExportResult.failed(path, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the inventory report to the given file without console output.
+     * The report is written from a snapshot, so it reflects a single point in
+     * time.
+     * Time Complexity: O(n) - Every device's details are written once.
+     *
+     * @param path   The file to write.
+     * @param format The report format.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeReport(Path path, InventoryExporter.Format format) throws IOException {
+        long start = startTiming();
+        try {
+            snapshot().writeReport(path, format);
+        } finally {
+            stopTiming(InventoryMetrics.Operation.EXPORT, start);
+        }
+    }
+
+    /**
+     * Takes a consistent, immutable point-in-time view of the inventory. The
+     * layout of the previous snapshot is reused unless a device was added,
+     * removed, renamed or moved since; its price and quantity columns already
+     * hold the current stock, so nothing is copied.
+     * Time Complexity: O(1), or O(n) when the layout has to be rebuilt.
+     *
+     * @return The snapshot.
+     */
+    public InventorySnapshot snapshot() {
+        long start = startTiming();
+        try {
+            InventorySnapshot.Layout layout = snapshotLayout;
+            if (layout == null) {
+                layout = buildSnapshotLayout();
+            }
+            return layout.capture();
+        } finally {
+            stopTiming(InventoryMetrics.Operation.SNAPSHOT, start);
+        }
+    }
+
+    /**
+     * Builds the snapshot layout from the current devices and starts keeping
+     * its columns up to date. The caller keeps the stock from changing while
+     * the layout is built.
+     * Time Complexity: O(n)
+     *
+     * @return The new layout.
      */
-    public void restockDevice(String deviceName, int quantityChange, boolean addStock) {
-        for (ArrayList<Device> deviceList : deviceLists) {
-            for (Device device : deviceList) {
-                if (device.getName().equalsIgnoreCase(deviceName)) {
-                    int currentQuantity = device.getQuantity();
-                    if (addStock) {
-                        device.setQuantity(currentQuantity + quantityChange);
-                        System.out.println(deviceName + " restocked. New quantity: " + device.getQuantity());
-                        System.out.println("-------------------------------------------------------");
-                    } else {
-                        // Check to prevent removing more stock than available
-                        if (quantityChange <= currentQuantity) {
-                            device.setQuantity(currentQuantity - quantityChange);
-                            System.out.println(deviceName + " stock reduced. New quantity: " + device.getQuantity());
-                            System.out.println("-------------------------------------------------------");
-                        } else {
-                            System.out.println("Error: Attempt to remove more stock than available.");
-                            System.out.println("-------------------------------------------------------");
+    InventorySnapshot.Layout buildSnapshotLayout() {
+        InventorySnapshot.Layout layout = new InventorySnapshot.Layout(getDevices());
+        snapshotLayout = layout;
+        return layout;
+    }
+
+    /**
+     * Exports each category to its own file in parallel, then writes a merged
+     * summary with the device count and value of every category and the same
+     * totals as exportInventoryToFile.
+     * Files are named inventory-&lt;category&gt;.&lt;extension&gt; and the summary
+     * inventory-summary.txt, all inside the given directory. All files are
+     * written from one snapshot, so they agree with each other even if the
+     * inventory changes while the export runs. Like the category files, the
+     * summary is written to a temporary file and moved into place, so
+     * concurrent exports to the same directory never interleave.
+     * Time Complexity: O(n/p) elapsed - The categories are written concurrently
+     * by up to p threads, bounded by the size of the largest category.
+     *
+     * @param directory The directory to write the files to; created if needed.
+     * @param format    The format of the category files.
+     * @param threads   The number of export threads.
+     * @return The outcome of the export.
+     */
+    public ExportResult exportInventoryByCategory(Path directory, InventoryExporter.Format format, int threads) {
+        long start = startTiming();
+        try {
+            Category[] categories = Category.values();
+            InventorySnapshot snapshot = snapshot();
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, categories.length)));
+            try {
+                Files.createDirectories(directory);
+                List<Future<Integer>> shards = new ArrayList<>(categories.length);
+                for (Category category : categories) {
+                    Path shard = directory.resolve(shardFileName(category, format));
+                    shards.add(pool.submit(() -> snapshot.writeCategoryReport(shard, format, category)));
+                }
+
+                // Merged summary, built from the row counts the shards report
+                Path summaryPath = directory.resolve("inventory-summary.txt");
+                Path written = Files.createTempFile(directory, "inventory-summary.txt.", ".tmp");
+                try {
+                    try (BufferedWriter writer = Files.newBufferedWriter(written, StandardCharsets.UTF_8)) {
+                        writer.write("Electronics Shop Inventory Summary\n" +
+                                "Generated on: " + LocalDate.now() + "\n" +
+                                "-------------------------------------------------\n" +
+                                "| Category | File | Devices | Value |\n" +
+                                "-------------------------------------------------\n");
+                        int totalCount = 0;
+                        for (Category category : categories) {
+                            int count = shards.get(category.ordinal()).get();
+                            totalCount += count;
+                            writer.write(String.format("| %s | %s | %d | $%,.2f |\n",
+                                    category.getDisplayName(),
+                                    shardFileName(category, format),
+                                    count,
+                                    snapshot.getCategoryValueInCents(category) / 100.0));
                         }
+                        writer.write("Summary:\n");
+                        writer.write(String.format("- Total Number of Devices: %d\n", totalCount));
+                        writer.write(String.format("- Total Inventory Value: $%,.2f\n", snapshot.getTotalValueInCents() / 100.0));
+                        writer.write("End of Report\n");
                     }
-                    return;
+                    Files.move(written, summaryPath, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(written); // Only left behind if the summary failed
                 }
+                return ExportResult.exported(directory);
+            } catch (IOException e) {
+                return ExportResult.failed(directory, e.getMessage());
+            } catch (ExecutionException e) {
+                return ExportResult.failed(directory, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ExportResult.interrupted(directory);
+            } finally {
+                pool.shutdownNow();
             }
+        } finally {
+            stopTiming(InventoryMetrics.Operation.EXPORT_BY_CATEGORY, start);
         }
-        System.out.println("Device " + deviceName + " not found in the inventory.");
     }
 
     /**
-     * Exports the inventory list to a file named "inventory.txt".
-     * Time Complexity: O(n*m) - Iterates through all categories (n) and devices
-     * within those categories (m) to write every device's details to the file,
-     * where n is the number of categories and m is the average number of devices
-     * per category.
-     */
-    public void exportInventoryToFile() {
-        String filename = "inventory.txt"; // Fixed filename
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            StringBuilder reportContent = new StringBuilder();
-
-            // Header of the report
-            String header = "Electronics Shop Inventory Report\n" +
-                    "Generated on: " + LocalDate.now() + "\n" +
-                    "-------------------------------------------------\n" +
-                    "| No. | Category | Name | Price | Quantity |\n" +
-                    "-------------------------------------------------\n";
-            reportContent.append(header);
-
-            // Numbering for the list of devices
-            int count = 1;
-
-            // Device list
-            for (ArrayList<Device> deviceList : deviceLists) {
-                for (Device device : deviceList) {
-                    String deviceInfo = String.format("| %d | %s | %s | $%.2f | %d |\n",
-                            count++,
-                            device.getCategory(),
-                            device.getName(),
-                            device.getPrice(),
-                            device.getQuantity());
-                    reportContent.append(deviceInfo);
-                }
+     * Builds the file name of a category shard, e.g. inventory-smart_phone.csv.
+     * Time Complexity: O(1)
+     *
+     * @param category The category of the shard.
+     * @param format   The format of the shard.
+     * @return The file name.
+     */
+    private static String shardFileName(Category category, InventoryExporter.Format format) {
+        return "inventory-" + category.name().toLowerCase(Locale.ROOT) + "." + format.getExtension();
+    }
+
+    /**
+     * Computes the stock value of a device line in cents.
+     * Time Complexity: O(1)
+     *
+     * @param price    The unit price.
+     * @param quantity The quantity in stock.
+     * @return The price, rounded to whole cents, times the quantity.
+     * @throws ArithmeticException if the price is not a finite number of
+     *                             cents or the value does not fit in a long.
+     */
+    static long valueInCents(double price, int quantity) {
+        // Math.round saturates instead of failing, so out-of-range prices are caught first
+        if (!(Math.abs(price * 100) < 0x1p63)) {
+            throw new ArithmeticException("The price " + price + " does not fit in whole cents.");
+        }
+        return Math.multiplyExact(Math.round(price * 100), (long) quantity);
+    }
+
+    /**
+     * Checks that the stock value of a device line fits in whole cents.
+     * Time Complexity: O(1)
+     *
+     * @param price    The unit price.
+     * @param quantity The quantity in stock.
+     * @return true if valueInCents succeeds for these values.
+     */
+    static boolean fitsInCents(double price, int quantity) {
+        try {
+            valueInCents(price, quantity);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Adds a value delta to a category. The update is atomic, so quantity
+     * changes on different devices may run concurrently.
+     * Time Complexity: O(1)
+     *
+     * @param category The category whose value changed.
+     * @param delta    The change in cents, negative for a decrease.
+     */
+    private void addValue(Category category, long delta) {
+        categoryValueInCents.addAndGet(category.ordinal(), delta);
+    }
+
+    /**
+     * Starts timing an operation.
+     * Time Complexity: O(1)
+     *
+     * @return The current time in nanoseconds, or 0 if no metrics are
+     *         attached.
+     */
+    private long startTiming() {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Records the latency of an operation started with startTiming.
+     * Time Complexity: O(1)
+     *
+     * @param operation The kind of operation.
+     * @param start     The value returned by startTiming.
+     */
+    private void stopTiming(InventoryMetrics.Operation operation, long start) {
+        InventoryMetrics current = metrics;
+        if (current != null && start != 0) {
+            current.record(operation, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Normalizes a device name into the key used by the name index.
+     * Time Complexity: O(k) where k is the length of the name.
+     *
+     * @param deviceName The device name.
+     * @return The lower-case key for the name.
+     */
+    static String nameKey(String deviceName) {
+        return deviceName.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Keeps the indexes, category sets and inventory value consistent when a
+     * device held by this inventory is changed through the Device setters.
+     */
+    private class IndexMaintainer implements DeviceListener {
+
+        /**
+         * Moves the device to its new key, rejecting names already used by
+         * another device and names that do not fit in a checkpoint record.
+         * Time Complexity: O(log n) - The ordered indexes are re-keyed.
+         *
+         * @param device  The device being renamed.
+         * @param newName The name the device is about to take.
+         */
+        @Override
+        public void nameChanging(Device device, String newName) {
+            if (!MappedInventory.fitsName(newName)) {
+                throw new IllegalArgumentException("Device name '" + newName + "' is longer than "
+                        + MappedInventory.MAX_NAME_BYTES + " bytes.");
+            }
+            String oldKey = nameKey(device.getName());
+            String newKey = nameKey(newName);
+            if (oldKey.equals(newKey)) {
+                return;
+            }
+            Device existing = devicesByName.get(newKey);
+            if (existing != null && existing != device) {
+                throw new IllegalArgumentException("A device with name '" + newName + "' already exists.");
+            }
+            devicesByName.remove(oldKey);
+            devicesByName.put(newKey, (ReservableDevice) device); // Only devices held here report to this listener
+            devicesByNameOrder.remove(oldKey);
+            devicesByNameOrder.put(newKey, device);
+            nameSearchIndex.remove(device, oldKey);
+            nameSearchIndex.add(device, newKey);
+            // The name is the tiebreak of the price index
+            devicesByPrice.remove(new PriceKey(device.getPrice(), oldKey));
+            devicesByPrice.put(new PriceKey(device.getPrice(), newKey), device);
+            priceOrderCache.invalidate();
+            snapshotLayout = null;
+        }
+
+        /**
+         * Moves the device to the set of its new category, rejecting categories
+         * that are not allowed.
+         * Time Complexity: O(1)
+         *
+         * @param device      The device being moved.
+         * @param newCategory The category the device is about to take.
+         */
+        @Override
+        public void categoryChanging(Device device, String newCategory) {
+            Category target = Category.fromDisplayName(newCategory);
+            if (target == null) {
+                throw new IllegalArgumentException("Category '" + newCategory + "' is not allowed.");
             }
+            Category current = Category.fromDisplayName(device.getCategory());
+            if (current != target) {
+                deviceLists.get(current).remove(device);
+                deviceLists.get(target).add(device);
+                long value = valueInCents(device.getPrice(), device.getQuantity());
+                addValue(current, -value);
+                addValue(target, value);
+                categoryOrderCache.invalidate();
+                snapshotLayout = null;
+            }
+        }
 
-            // Summary
-            String summary = "Summary:\n";
-            double totalValue = calculateTotalInventoryValue(); // Use your method to calculate this
-            summary += String.format("- Total Number of Devices: %d\n", count - 1);
-            summary += String.format("- Total Inventory Value: $%,.2f\n", totalValue);
-            summary += "End of Report\n";
+        /**
+         * Vetoes stock changes whose value would not fit in whole cents, so
+         * stockChanged never fails after the device has changed.
+         * Time Complexity: O(1)
+         *
+         * @param device      The device about to change.
+         * @param newPrice    The price after the change.
+         * @param newQuantity The quantity after the change.
+         * @throws ArithmeticException if the value would not fit.
+         */
+        @Override
+        public void stockChanging(Device device, double newPrice, int newQuantity) {
+            valueInCents(newPrice, newQuantity);
+        }
 
-            reportContent.append(summary);
+        /**
+         * Re-keys the device in the price index when its price changed and
+         * applies the value change, to the inventory and to the snapshot
+         * layout. Quantity-only changes touch nothing but the atomic category
+         * value and the layout, which serializes its own updates, so they are
+         * safe to report concurrently.
+         * Time Complexity: O(log n) for a price change, O(1) otherwise.
+         *
+         * @param device      The device that changed.
+         * @param oldPrice    The price before the change.
+         * @param oldQuantity The quantity before the change.
+         * @param newPrice    The price after the change.
+         * @param newQuantity The quantity after the change.
+         */
+        @Override
+        public void stockChanged(Device device, double oldPrice, int oldQuantity, double newPrice, int newQuantity) {
+            if (Double.compare(oldPrice, newPrice) != 0) {
+                String key = nameKey(device.getName());
+                devicesByPrice.remove(new PriceKey(oldPrice, key));
+                devicesByPrice.put(new PriceKey(newPrice, key), device);
+                priceOrderCache.invalidate();
+            }
+            Category category = Category.fromDisplayName(device.getCategory());
+            long delta = valueInCents(newPrice, newQuantity) - valueInCents(oldPrice, oldQuantity);
+            addValue(category, delta);
+            InventorySnapshot.Layout layout = snapshotLayout;
+            if (layout != null) {
+                layout.stockChanged(device, category, newPrice, newQuantity, delta);
+            }
+        }
+    }
 
-            // Write to file
-            writer.write(reportContent.toString());
+    /**
+     * Key of the price index: a price snapshot plus the normalized name as
+     * tiebreak. The snapshot lets an entry be found again after the device
+     * price has already changed.
+     */
+    private static final class PriceKey implements Comparable<PriceKey> {
+        private final double price;
+        private final String nameKey;
 
+        /**
+         * Constructs a key for the given price and normalized name.
+         * Time Complexity: O(1)
+         *
+         * @param price   The device price.
+         * @param nameKey The normalized device name.
+         */
+        PriceKey(double price, String nameKey) {
+            this.price = price;
+            this.nameKey = nameKey;
+        }
 
-            // Feedback
-            System.out.println("Inventory report exported to " + filename);
-        } catch (IOException e) {
-            System.out.println("An error occurred while writing to the file: " + e.getMessage());
+        /**
+         * Orders keys by price, then by name.
+         * Time Complexity: O(k) where k is the length of the shorter name.
+         *
+         * @param other The key to compare with.
+         * @return A negative, zero or positive value as this key sorts before,
+         *         with or after the other.
+         */
+        @Override
+        public int compareTo(PriceKey other) {
+            int byPrice = Double.compare(price, other.price);
+            return byPrice != 0 ? byPrice : nameKey.compareTo(other.nameKey);
         }
     }
 
@@ -0,0 +1,303 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * The InventoryExporter class streams an inventory report to a file, one row
+ * at a time, so memory use does not grow with the size of the inventory.
+ * Reports can be written as the human-readable text table, as CSV, or as JSON
+ * Lines. Numbers are written digit by digit into a reusable buffer instead of
+ * going through String.format for every row.
+ */
+public class InventoryExporter implements Closeable {
+
+    /**
+     * The supported report formats.
+     */
+    public enum Format {
+        /** The text table written by Inventory.exportInventoryToFile. */
+        TEXT("txt"),
+        /** Comma-separated values with a header row. */
+        CSV("csv"),
+        /** One JSON object per line. */
+        JSON_LINES("jsonl");
+
+        private final String extension;
+
+        /**
+         * Constructs a format with the given file extension.
+         * Time Complexity: O(1)
+         *
+         * @param extension The file extension, without the dot.
+         */
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * Gets the usual file extension of this format.
+         * Time Complexity: O(1)
+         *
+         * @return The file extension, without the dot.
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+    private final Format format;
+    private final char[] digits = new char[24];
+    private int count;
+
+    /**
+     * Opens a report file with a large write buffer, replacing any previous
+     * content.
+     * Time Complexity: O(1)
+     *
+     * @param path   The file to write.
+     * @param format The report format.
+     * @throws IOException if the file cannot be opened.
+     */
+    public InventoryExporter(Path path, Format format) throws IOException {
+        this(new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8),
+                WRITE_BUFFER_SIZE), format);
+    }
+
+    /**
+     * Writes a report to the given writer. The writer should be buffered.
+     * Time Complexity: O(1)
+     *
+     * @param writer The destination of the report; closed with the exporter.
+     * @param format The report format.
+     */
+    public InventoryExporter(Writer writer, Format format) {
+        this.writer = writer;
+        this.format = format;
+    }
+
+    /**
+     * Gets the number of device rows written so far.
+     * Time Complexity: O(1)
+     *
+     * @return The number of rows.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Writes the report header.
+     * Time Complexity: O(1)
+     *
+     * @throws IOException if the header cannot be written.
+     */
+    public void writeHeader() throws IOException {
+        switch (format) {
+            case TEXT:
+                writer.write("Electronics Shop Inventory Report\n" +
+                        "Generated on: " + LocalDate.now() + "\n" +
+                        "-------------------------------------------------\n" +
+                        "| No. | Category | Name | Price | Quantity |\n" +
+                        "-------------------------------------------------\n");
+                break;
+            case CSV:
+                writer.write("category,name,price,quantity\n");
+                break;
+            case JSON_LINES:
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Writes one device row.
+     * Time Complexity: O(k) where k is the length of the row.
+     *
+     * @param device The device to write.
+     * @throws IOException if the row cannot be written.
+     */
+    public void writeDevice(Device device) throws IOException {
+        count++;
+        long priceInCents = Math.round(device.getPrice() * 100);
+        switch (format) {
+            case TEXT:
+                writer.write("| ");
+                writeLong(count);
+                writer.write(" | ");
+                writer.write(device.getCategory());
+                writer.write(" | ");
+                writer.write(device.getName());
+                writer.write(" | $");
+                writeCents(priceInCents);
+                writer.write(" | ");
+                writeLong(device.getQuantity());
+                writer.write(" |\n");
+                break;
+            case CSV:
+                writeCsvField(device.getCategory());
+                writer.write(',');
+                writeCsvField(device.getName());
+                writer.write(',');
+                writeCents(priceInCents);
+                writer.write(',');
+                writeLong(device.getQuantity());
+                writer.write('\n');
+                break;
+            case JSON_LINES:
+            default:
+                writer.write("{\"category\":");
+                writeJsonString(device.getCategory());
+                writer.write(",\"name\":");
+                writeJsonString(device.getName());
+                writer.write(",\"price\":");
+                writeCents(priceInCents);
+                writer.write(",\"quantity\":");
+                writeLong(device.getQuantity());
+                writer.write("}\n");
+                break;
+        }
+    }
+
+    /**
+     * Writes the report summary. Only the text table has a summary; the CSV and
+     * JSON Lines formats contain device rows only.
+     * Time Complexity: O(1)
+     *
+     * @param deviceCount       The number of devices in the report.
+     * @param totalValueInCents The total inventory value in cents.
+     * @throws IOException if the summary cannot be written.
+     */
+    public void writeSummary(int deviceCount, long totalValueInCents) throws IOException {
+        if (format != Format.TEXT) {
+            return;
+        }
+        writer.write("Summary:\n");
+        writer.write(String.format("- Total Number of Devices: %d\n", deviceCount));
+        writer.write(String.format("- Total Inventory Value: $%,.2f\n", totalValueInCents / 100.0));
+        writer.write("End of Report\n");
+    }
+
+    /**
+     * Flushes the report and closes the file.
+     * Time Complexity: O(b) where b is the number of buffered characters.
+     *
+     * @throws IOException if the report cannot be flushed or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Writes a whole number without allocating.
+     * Time Complexity: O(d) where d is the number of digits.
+     *
+     * @param value The number to write.
+     * @throws IOException if the number cannot be written.
+     */
+    private void writeLong(long value) throws IOException {
+        int position = digits.length;
+        boolean negative = value < 0;
+        // Work with the negative value so Long.MIN_VALUE does not overflow
+        long remaining = negative ? value : -value;
+        do {
+            digits[--position] = (char) ('0' - (remaining % 10));
+            remaining /= 10;
+        } while (remaining != 0);
+        if (negative) {
+            digits[--position] = '-';
+        }
+        writer.write(digits, position, digits.length - position);
+    }
+
+    /**
+     * Writes an amount of cents as a decimal with two fraction digits, e.g.
+     * 120050 as 1200.50, without allocating.
+     * Time Complexity: O(d) where d is the number of digits.
+     *
+     * @param cents The amount to write.
+     * @throws IOException if the amount cannot be written.
+     */
+    private void writeCents(long cents) throws IOException {
+        int position = digits.length;
+        boolean negative = cents < 0;
+        long remaining = negative ? cents : -cents;
+        for (int i = 0; i < 2; i++) {
+            digits[--position] = (char) ('0' - (remaining % 10));
+            remaining /= 10;
+        }
+        digits[--position] = '.';
+        do {
+            digits[--position] = (char) ('0' - (remaining % 10));
+            remaining /= 10;
+        } while (remaining != 0);
+        if (negative) {
+            digits[--position] = '-';
+        }
+        writer.write(digits, position, digits.length - position);
+    }
+
+    /**
+     * Writes a CSV field, quoting it when it contains a comma, quote or line
+     * break.
+     * Time Complexity: O(k) where k is the length of the value.
+     *
+     * @param value The field value.
+     * @throws IOException if the field cannot be written.
+     */
+    private void writeCsvField(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Writes a JSON string literal, escaping quotes, backslashes and control
+     * characters.
+     * Time Complexity: O(k) where k is the length of the value.
+     *
+     * @param value The string to write.
+     * @throws IOException if the string cannot be written.
+     */
+    private void writeJsonString(String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write("\\u00");
+                writer.write(Character.forDigit(c >> 4, 16));
+                writer.write(Character.forDigit(c & 0xF, 16));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,667 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The InventoryImporter class bulk loads devices from CSV or JSON Lines files,
+ * in the formats written by InventoryExporter.
+ * The file is read in chunks of lines that are parsed in parallel on a thread
+ * pool, while the calling thread inserts the parsed chunks into the inventory
+ * in file order, one batch per chunk. Category, price and quantity are checked
+ * while parsing and the rest while inserting, so every row is validated in a
+ * single pass. Rejected rows are reported with their line number and reason.
+ * Main runs an import with "--import file".
+ * Every record must fit on one line; quoted CSV fields containing line breaks
+ * are not supported.
+ */
+public class InventoryImporter {
+
+    /** Maximum number of rejected rows kept with their details in a report. */
+    public static final int MAX_REPORTED_REJECTIONS = 1000;
+
+    private static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final int threads;
+    private final int chunkSize;
+
+    /**
+     * Constructs an importer that parses on one thread per available core.
+     * Time Complexity: O(1)
+     */
+    public InventoryImporter() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs an importer with the given parallelism.
+     * Time Complexity: O(1)
+     *
+     * @param threads   The number of parser threads.
+     * @param chunkSize The number of lines parsed and inserted as one batch.
+     */
+    public InventoryImporter(int threads, int chunkSize) {
+        this.threads = Math.max(threads, 1);
+        this.chunkSize = Math.max(chunkSize, 1);
+    }
+
+    /**
+     * Imports every row of a file into the inventory.
+     * Time Complexity: O(r log n) where r is the number of rows; parsing is
+     * spread over the parser threads.
+     *
+     * @param path      The file to read.
+     * @param format    The file format, CSV or JSON_LINES.
+     * @param inventory The inventory to add the devices to.
+     * @return The import report.
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if the format cannot be imported.
+     */
+    public ImportReport importFile(Path path, InventoryExporter.Format format, Inventory inventory)
+            throws IOException {
+        if (format == InventoryExporter.Format.TEXT) {
+            throw new IllegalArgumentException("Text reports cannot be imported; use CSV or JSON Lines.");
+        }
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        // Bound the parsed chunks waiting for insertion, so memory stays flat
+        Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            List<String> lines = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && format == InventoryExporter.Format.CSV && line.startsWith("category,")) {
+                    continue; // Header row
+                }
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    inFlight.add(submit(pool, lines, lineNumber - lines.size() + 1, format));
+                    lines = new ArrayList<>(chunkSize);
+                    if (inFlight.size() >= threads * 2) {
+                        insert(inFlight.poll().get(), inventory, report);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                inFlight.add(submit(pool, lines, lineNumber - lines.size() + 1, format));
+            }
+            while (!inFlight.isEmpty()) {
+                insert(inFlight.poll().get(), inventory, report);
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to parse " + path + ": " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import of " + path + " was interrupted.", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    /**
+     * Submits a chunk of lines for parsing.
+     * Time Complexity: O(1)
+     *
+     * @param pool            The parser pool.
+     * @param lines           The lines of the chunk.
+     * @param firstLineNumber The line number of the first line, counting from 1.
+     * @param format          The file format.
+     * @return The pending parse result.
+     */
+    private static Future<ParsedChunk> submit(ExecutorService pool, List<String> lines, long firstLineNumber,
+            InventoryExporter.Format format) {
+        return pool.submit(() -> parseChunk(lines, firstLineNumber, format));
+    }
+
+    /**
+     * Parses a chunk of lines into devices, recording an error for every line
+     * that is not a valid device.
+     * Time Complexity: O(c) where c is the number of characters in the chunk.
+     *
+     * @param lines           The lines of the chunk.
+     * @param firstLineNumber The line number of the first line.
+     * @param format          The file format.
+     * @return The parsed chunk.
+     */
+    private static ParsedChunk parseChunk(List<String> lines, long firstLineNumber, InventoryExporter.Format format) {
+        ParsedChunk chunk = new ParsedChunk(lines.size(), firstLineNumber);
+        List<String> fields = new ArrayList<>(4);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                fields.clear();
+                if (format == InventoryExporter.Format.CSV) {
+                    parseCsv(line, fields);
+                } else {
+                    parseJson(line, fields);
+                }
+                chunk.devices.add(toDevice(fields));
+                chunk.lineOffsets.add(i);
+            } catch (IllegalArgumentException e) {
+                chunk.errors.add(new Rejection(firstLineNumber + i, line, e.getMessage()));
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Adds a parsed chunk to the inventory as one batch and records the result.
+     * Time Complexity: O(k log n) where k is the size of the chunk.
+     *
+     * @param chunk     The parsed chunk.
+     * @param inventory The inventory to add to.
+     * @param report    The report to update.
+     */
+    private static void insert(ParsedChunk chunk, Inventory inventory, ImportReport report) {
+        boolean[] added = inventory.addDevices(chunk.devices);
+        // Parse errors and refused rows are both in line order; merge them so the report is too
+        int error = 0;
+        for (int i = 0; i < added.length; i++) {
+            if (added[i]) {
+                report.imported++;
+                continue;
+            }
+            long lineNumber = chunk.firstLineNumber + chunk.lineOffsets.get(i);
+            while (error < chunk.errors.size() && chunk.errors.get(error).getLineNumber() < lineNumber) {
+                report.reject(chunk.errors.get(error++));
+            }
+            Device device = chunk.devices.get(i);
+            report.reject(new Rejection(lineNumber, device.getName(), rejectionReason(device)));
+        }
+        while (error < chunk.errors.size()) {
+            report.reject(chunk.errors.get(error++));
+        }
+        report.rowsRead += chunk.lineCount;
+    }
+
+    /**
+     * Explains why addDevices skipped a parsed device, checking in the same
+     * order as Inventory.addDevice.
+     * Time Complexity: O(k) where k is the length of the name.
+     *
+     * @param device The skipped device.
+     * @return The reason.
+     */
+    private static String rejectionReason(Device device) {
+        if (Category.fromDisplayName(device.getCategory()) == null) {
+            return "category '" + device.getCategory() + "' is not allowed";
+        }
+        if (!MappedInventory.fitsName(device.getName())) {
+            return "name '" + device.getName() + "' is longer than " + MappedInventory.MAX_NAME_BYTES + " bytes";
+        }
+        if (!Inventory.fitsInCents(device.getPrice(), device.getQuantity())) {
+            return "stock value of '" + device.getName() + "' is too large";
+        }
+        return "duplicate name '" + device.getName() + "'";
+    }
+
+    /**
+     * Validates the category, name, price and quantity fields and creates the
+     * device.
+     * Time Complexity: O(k) where k is the length of the fields.
+     *
+     * @param fields The category, name, price and quantity fields, in order.
+     * @return The device.
+     * @throws IllegalArgumentException if a field is missing or invalid.
+     */
+    static ReservableDevice toDevice(List<String> fields) {
+        if (fields.size() != 4) {
+            throw new IllegalArgumentException("expected 4 fields but found " + fields.size());
+        }
+        Category category = Category.fromDisplayName(fields.get(0));
+        if (category == null) {
+            throw new IllegalArgumentException("category '" + fields.get(0) + "' is not allowed");
+        }
+        String name = fields.get(1).trim();
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("name is empty");
+        }
+        double price;
+        int quantity;
+        try {
+            price = Double.parseDouble(fields.get(2));
+            quantity = Integer.parseInt(fields.get(3));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number: " + e.getMessage());
+        }
+        if (!(price >= 0) || Double.isInfinite(price)) {
+            throw new IllegalArgumentException("invalid price " + fields.get(2));
+        }
+        if (quantity < 0) {
+            throw new IllegalArgumentException("negative quantity " + quantity);
+        }
+        return category.createDevice(name, price, quantity);
+    }
+
+    /**
+     * Splits a CSV line into fields, honoring double-quoted fields.
+     * Time Complexity: O(k) where k is the length of the line.
+     *
+     * @param line   The line to split.
+     * @param fields The list receiving the fields.
+     * @throws IllegalArgumentException if a quoted field is not closed.
+     */
+    private static void parseCsv(String line, List<String> fields) {
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+            } else {
+                while (i < line.length() && line.charAt(i) != ',') {
+                    field.append(line.charAt(i++));
+                }
+            }
+            fields.add(field.toString());
+            if (i >= line.length()) {
+                return;
+            }
+            if (line.charAt(i) != ',') {
+                throw new IllegalArgumentException("unexpected character after quoted field");
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Reads the category, name, price and quantity members of a flat JSON
+     * object, in that order, whatever their order in the line.
+     * Time Complexity: O(k) where k is the length of the line.
+     *
+     * @param line   The JSON object.
+     * @param fields The list receiving the four values.
+     * @throws IllegalArgumentException if the line is not a flat JSON object or
+     *                                  a member is missing.
+     */
+    private static void parseJson(String line, List<String> fields) {
+        String[] values = new String[4];
+        JsonCursor cursor = new JsonCursor(line);
+        cursor.expect('{');
+        if (!cursor.consume('}')) {
+            do {
+                String key = cursor.readString();
+                cursor.expect(':');
+                String value = cursor.peek() == '"' ? cursor.readString() : cursor.readLiteral();
+                switch (key) {
+                    case "category":
+                        values[0] = value;
+                        break;
+                    case "name":
+                        values[1] = value;
+                        break;
+                    case "price":
+                        values[2] = value;
+                        break;
+                    case "quantity":
+                        values[3] = value;
+                        break;
+                    default:
+                        break; // Unknown members are ignored
+                }
+            } while (cursor.consume(','));
+            cursor.expect('}');
+        }
+        String[] names = {"category", "name", "price", "quantity"};
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                throw new IllegalArgumentException("missing member \"" + names[i] + "\"");
+            }
+            fields.add(values[i]);
+        }
+    }
+
+    /**
+     * A minimal reader over one line of JSON holding a flat object.
+     */
+    private static final class JsonCursor {
+        private final String text;
+        private int position;
+
+        /**
+         * Constructs a cursor at the start of the text.
+         * Time Complexity: O(1)
+         *
+         * @param text The JSON text.
+         */
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Skips whitespace and returns the next character without consuming it.
+         * Time Complexity: O(w) where w is the amount of whitespace.
+         *
+         * @return The next character, or 0 at the end of the text.
+         */
+        char peek() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            return position < text.length() ? text.charAt(position) : 0;
+        }
+
+        /**
+         * Consumes the next character if it is the expected one.
+         * Time Complexity: O(w)
+         *
+         * @param c The expected character.
+         * @return true if it was consumed.
+         */
+        boolean consume(char c) {
+            if (peek() == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Consumes the next character, which must be the expected one.
+         * Time Complexity: O(w)
+         *
+         * @param c The expected character.
+         * @throws IllegalArgumentException if another character follows.
+         */
+        void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("expected '" + c + "' at column " + (position + 1));
+            }
+        }
+
+        /**
+         * Reads a string literal, decoding escape sequences.
+         * Time Complexity: O(k) where k is the length of the literal.
+         *
+         * @return The decoded string.
+         * @throws IllegalArgumentException if the literal is malformed.
+         */
+        String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                char escape = text.charAt(position++);
+                switch (escape) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("truncated unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("invalid unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escape); // \" \\ and \/
+                        break;
+                }
+            }
+            throw new IllegalArgumentException("unterminated string");
+        }
+
+        /**
+         * Reads a number or other bare literal up to the next separator.
+         * Time Complexity: O(k) where k is the length of the literal.
+         *
+         * @return The literal text.
+         */
+        String readLiteral() {
+            peek();
+            int start = position;
+            while (position < text.length() && ",} \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            return text.substring(start, position);
+        }
+    }
+
+    /**
+     * The devices parsed from one chunk of lines, and the lines rejected while
+     * parsing.
+     */
+    private static final class ParsedChunk {
+        private final int lineCount;
+        private final long firstLineNumber;
+        private final List<ReservableDevice> devices;
+        private final List<Integer> lineOffsets;
+        private final List<Rejection> errors = new ArrayList<>();
+
+        /**
+         * Constructs an empty chunk.
+         * Time Complexity: O(1)
+         *
+         * @param lineCount       The number of lines in the chunk.
+         * @param firstLineNumber The line number of the first line.
+         */
+        ParsedChunk(int lineCount, long firstLineNumber) {
+            this.lineCount = lineCount;
+            this.firstLineNumber = firstLineNumber;
+            this.devices = new ArrayList<>(lineCount);
+            this.lineOffsets = new ArrayList<>(lineCount);
+        }
+    }
+
+    /**
+     * A rejected row: its line number, content and the reason it was rejected.
+     */
+    public static final class Rejection {
+        private final long lineNumber;
+        private final String line;
+        private final String reason;
+
+        /**
+         * Constructs a rejection.
+         * Time Complexity: O(1)
+         *
+         * @param lineNumber The line number, counting from 1.
+         * @param line       The rejected line, or the device name for rows the
+         *                   inventory refused.
+         * @param reason     Why the row was rejected.
+         */
+        Rejection(long lineNumber, String line, String reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        /**
+         * Gets the line number of the rejected row.
+         * Time Complexity: O(1)
+         *
+         * @return The line number, counting from 1.
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * Gets the rejected line, or the device name for rows the inventory
+         * refused.
+         * Time Complexity: O(1)
+         *
+         * @return The rejected content.
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * Gets the reason the row was rejected.
+         * Time Complexity: O(1)
+         *
+         * @return The reason.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * Describes the rejection.
+         *
+         * @return The line number and reason.
+         */
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + reason;
+        }
+    }
+
+    /**
+     * The outcome of an import: how many rows were read, imported and
+     * rejected, how long it took, and the first MAX_REPORTED_REJECTIONS
+     * rejected rows.
+     */
+    public static final class ImportReport {
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+        private long elapsedNanos;
+        private final List<Rejection> rejections = new ArrayList<>();
+
+        /**
+         * Records a rejected row, keeping its details while there is room.
+         * Time Complexity: O(1)
+         *
+         * @param rejection The rejected row.
+         */
+        private void reject(Rejection rejection) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add(rejection);
+            }
+        }
+
+        /**
+         * Gets the number of data rows read, excluding the CSV header.
+         * Time Complexity: O(1)
+         *
+         * @return The number of rows read.
+         */
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        /**
+         * Gets the number of devices added to the inventory.
+         * Time Complexity: O(1)
+         *
+         * @return The number of imported rows.
+         */
+        public long getImported() {
+            return imported;
+        }
+
+        /**
+         * Gets the number of rejected rows.
+         * Time Complexity: O(1)
+         *
+         * @return The number of rejected rows.
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Gets the details of the first rejected rows, in line order.
+         * Time Complexity: O(1)
+         *
+         * @return A read-only list of at most MAX_REPORTED_REJECTIONS rows.
+         */
+        public List<Rejection> getRejections() {
+            return Collections.unmodifiableList(rejections);
+        }
+
+        /**
+         * Gets the wall-clock time of the import.
+         * Time Complexity: O(1)
+         *
+         * @return The elapsed time in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Gets the import throughput.
+         * Time Complexity: O(1)
+         *
+         * @return The number of rows read per second.
+         */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        /**
+         * Summarizes the report on one line.
+         *
+         * @return The counts, elapsed time and throughput.
+         */
+        @Override
+        public String toString() {
+            return String.format("%d rows read, %d imported, %d rejected in %.3f s (%.0f rows/s)",
+                    rowsRead, imported, rejected, elapsedNanos / 1e9, getRowsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.List;
+
+/**
+ * The InventoryRenderer interface turns the results of inventory operations
+ * into output for a user. The Inventory methods return results and never print,
+ * so callers that only need the data pay nothing for formatting; the CLI
+ * passes the results to a renderer instead.
+ * Implementations may buffer their output until flush is called.
+ */
+public interface InventoryRenderer {
+
+    /**
+     * Renders the outcome of adding a device.
+     *
+     * @param result The result returned by Inventory.addDevice.
+     */
+    void renderAdd(InventoryResult result);
+
+    /**
+     * Renders the outcome of removing a device.
+     *
+     * @param result The result returned by Inventory.removeDevice.
+     */
+    void renderRemoval(InventoryResult result);
+
+    /**
+     * Renders the outcome of updating the price and quantity of a device.
+     *
+     * @param result The result returned by Inventory.updateDeviceDetails.
+     */
+    void renderUpdate(InventoryResult result);
+
+    /**
+     * Renders the outcome of adding or removing stock.
+     *
+     * @param result   The result returned by Inventory.restockDevice.
+     * @param addStock True if stock was added, false if removed.
+     */
+    void renderRestock(InventoryResult result, boolean addStock);
+
+    /**
+     * Renders the list of all devices.
+     *
+     * @param devices The devices returned by Inventory.listAllDevices.
+     */
+    void renderDeviceList(List<Device> devices);
+
+    /**
+     * Renders the devices ordered by price.
+     *
+     * @param devices The devices returned by Inventory.sortDevicesByPrice.
+     */
+    void renderSortedDevices(List<Device> devices);
+
+    /**
+     * Renders the outcome of exporting the inventory.
+     *
+     * @param result The result returned by Inventory.exportInventoryToFile or
+     *               Inventory.exportInventoryByCategory.
+     */
+    void renderExport(ExportResult result);
+
+    /**
+     * Writes any buffered output to its destination.
+     */
+    void flush();
+}
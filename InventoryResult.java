@@ -0,0 +1,198 @@
+/**
+ * The InventoryResult class describes the outcome of adding, removing,
+ * updating or restocking one device, so callers can act on it without parsing console
+ * output. The price and quantity are captured when the operation completes.
+ * Instances are immutable.
+ */
+public final class InventoryResult {
+
+    /**
+     * The possible outcomes of an operation.
+     */
+    public enum Status {
+        /** The operation was applied. */
+        APPLIED,
+        /** No device has the given name. */
+        NOT_FOUND,
+        /**
+         * More stock would have been removed than is available, or the new
+         * quantity is below the reserved units.
+         */
+        INSUFFICIENT_STOCK,
+        /** The value of the device's stock would not fit in whole cents. */
+        VALUE_TOO_LARGE,
+        /** The category of the device to add is not allowed. */
+        CATEGORY_NOT_ALLOWED,
+        /** A device with the same name, ignoring case, already exists. */
+        DUPLICATE_NAME,
+        /** The name of the device to add does not fit in a checkpoint record. */
+        NAME_TOO_LONG
+    }
+
+    private final Status status;
+    private final String deviceName;
+    private final Device device;
+    private final double price;
+    private final int quantity;
+
+    /**
+     * Constructs a result.
+     * Time Complexity: O(1)
+     *
+     * @param status     The outcome of the operation.
+     * @param deviceName The device name given by the caller.
+     * @param device     The device operated on, or null if it was not found.
+     * @param quantity   The quantity of the device after the operation.
+     */
+    private InventoryResult(Status status, String deviceName, Device device, int quantity) {
+        this.status = status;
+        this.deviceName = deviceName;
+        this.device = device;
+        this.price = device == null ? 0 : device.getPrice();
+        this.quantity = quantity;
+    }
+
+    /**
+     * Creates the result of an applied operation.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The device name given by the caller.
+     * @param device     The device operated on.
+     * @param quantity   The quantity of the device after the operation.
+     * @return The result.
+     */
+    static InventoryResult applied(String deviceName, Device device, int quantity) {
+        return new InventoryResult(Status.APPLIED, deviceName, device, quantity);
+    }
+
+    /**
+     * Creates the result of an operation on a device that does not exist.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The device name given by the caller.
+     * @return The result.
+     */
+    static InventoryResult notFound(String deviceName) {
+        return new InventoryResult(Status.NOT_FOUND, deviceName, null, 0);
+    }
+
+    /**
+     * Creates the result of a stock removal that was refused.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The device name given by the caller.
+     * @param device     The device operated on.
+     * @return The result.
+     */
+    static InventoryResult insufficientStock(String deviceName, Device device) {
+        return new InventoryResult(Status.INSUFFICIENT_STOCK, deviceName, device, device.getQuantity());
+    }
+
+    /**
+     * Creates the result of a change refused because the value of the
+     * device's stock would not fit in whole cents. The device is unchanged.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The device name given by the caller.
+     * @param device     The device operated on.
+     * @return The result.
+     */
+    static InventoryResult valueTooLarge(String deviceName, Device device) {
+        return new InventoryResult(Status.VALUE_TOO_LARGE, deviceName, device, device.getQuantity());
+    }
+
+    /**
+     * Creates the result of an add refused because the category of the
+     * device is not allowed.
+     * Time Complexity: O(1)
+     *
+     * @param device The device that was not added.
+     * @return The result.
+     */
+    static InventoryResult categoryNotAllowed(Device device) {
+        return new InventoryResult(Status.CATEGORY_NOT_ALLOWED, device.getName(), device, device.getQuantity());
+    }
+
+    /**
+     * Creates the result of an add refused because the name is taken.
+     * Time Complexity: O(1)
+     *
+     * @param device The device that was not added.
+     * @return The result.
+     */
+    static InventoryResult duplicateName(Device device) {
+        return new InventoryResult(Status.DUPLICATE_NAME, device.getName(), device, device.getQuantity());
+    }
+
+    /**
+     * Creates the result of an add refused because the name is longer than
+     * MappedInventory.MAX_NAME_BYTES in UTF-8.
+     * Time Complexity: O(1)
+     *
+     * @param device The device that was not added.
+     * @return The result.
+     */
+    static InventoryResult nameTooLong(Device device) {
+        return new InventoryResult(Status.NAME_TOO_LONG, device.getName(), device, device.getQuantity());
+    }
+
+    /**
+     * Gets the outcome of the operation.
+     * Time Complexity: O(1)
+     *
+     * @return The status.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Tells whether the operation was applied.
+     * Time Complexity: O(1)
+     *
+     * @return true if the status is APPLIED.
+     */
+    public boolean isApplied() {
+        return status == Status.APPLIED;
+    }
+
+    /**
+     * Gets the device name as given by the caller.
+     * Time Complexity: O(1)
+     *
+     * @return The requested name.
+     */
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    /**
+     * Gets the device operated on.
+     * Time Complexity: O(1)
+     *
+     * @return The device, or null if it was not found.
+     */
+    public Device getDevice() {
+        return device;
+    }
+
+    /**
+     * Gets the price of the device when the operation completed.
+     * Time Complexity: O(1)
+     *
+     * @return The price, or 0 if the device was not found.
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * Gets the quantity of the device when the operation completed.
+     * Time Complexity: O(1)
+     *
+     * @return The quantity, or 0 if the device was not found.
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+}
@@ -0,0 +1,221 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The InventoryServer class lets many clients use one inventory at the same
+ * time over a local TCP connection, speaking the line protocol of
+ * CommandProcessor. Each line a client sends is one command and is answered
+ * with one reply; QUIT closes the connection.
+ * Every connection is served by its own thread. On Java 21 and later these
+ * are virtual threads, so thousands of mostly idle clients cost little
+ * memory; on older runtimes a cached pool of platform threads is used.
+ * Replies are flushed once the client has no further commands buffered, so
+ * pipelined commands are answered with a single write.
+ * The server only listens on the loopback address. The inventory must be
+ * thread-safe, normally a ConcurrentInventory.
+ */
+public class InventoryServer implements Closeable {
+
+    private static final int BACKLOG = 1024;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final CommandProcessor processor;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final boolean virtualThreads;
+    private final Set<Socket> openSockets;
+    private final Thread acceptor;
+
+    /**
+     * Binds a server for the given inventory to a loopback port. Call start to
+     * begin accepting clients.
+     * Time Complexity: O(1)
+     *
+     * @param inventory The thread-safe inventory to serve.
+     * @param port      The port to listen on, or 0 for any free port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public InventoryServer(Inventory inventory, int port) throws IOException {
+        this.processor = new CommandProcessor(inventory);
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.connections = virtual != null ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.openSockets = ConcurrentHashMap.newKeySet();
+        this.acceptor = new Thread(this::acceptConnections, "inventory-server");
+    }
+
+    /**
+     * Starts accepting clients on a background thread.
+     * Time Complexity: O(1)
+     */
+    public void start() {
+        acceptor.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * Time Complexity: O(1)
+     *
+     * @return The local port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Tells whether connections are served by virtual threads.
+     * Time Complexity: O(1)
+     *
+     * @return true on Java 21 and later, false when platform threads are used.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Waits until the server has been closed.
+     * Time Complexity: O(1)
+     *
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public void join() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Stops accepting clients, disconnects the connected ones and waits up to
+     * five seconds for their current commands to finish.
+     * Time Complexity: O(c) where c is the number of open connections.
+     *
+     * @throws IOException if the listening socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : openSockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // The connection is being dropped anyway
+            }
+        }
+        connections.shutdown();
+        try {
+            connections.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Accepts clients until the listening socket is closed, handing each
+     * connection to its own thread.
+     * Time Complexity: O(1) per connection.
+     */
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                continue; // Closed, or a failed handshake; the loop condition decides
+            }
+            openSockets.add(socket);
+            try {
+                connections.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                disconnect(socket); // The server is closing
+            }
+        }
+    }
+
+    /**
+     * Reads commands from one client and writes the replies until the client
+     * sends QUIT or disconnects.
+     * Time Complexity: O(1) per command, plus the cost of the command.
+     *
+     * @param socket The client connection.
+     */
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+            Writer out = new BufferedWriter(
+                    new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+            String line;
+            while ((line = CommandProcessor.readLine(in)) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (line.trim().equalsIgnoreCase("QUIT")) {
+                    break;
+                }
+                processor.execute(line, out);
+                // Answer a burst of pipelined commands with one write
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // The client disconnected
+        } catch (RuntimeException e) {
+            // CommandProcessor answers failed commands itself, so this is a bug; report it
+            System.err.println("Dropped a client after an unexpected error: " + e);
+        } finally {
+            disconnect(socket);
+        }
+    }
+
+    /**
+     * Closes a client connection and forgets it.
+     * Time Complexity: O(1)
+     *
+     * @param socket The client connection.
+     */
+    private void disconnect(Socket socket) {
+        openSockets.remove(socket);
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task, if the
+     * runtime has them. It is looked up reflectively so the class still
+     * compiles and runs on Java 17.
+     * Time Complexity: O(1)
+     *
+     * @return The executor, or null before Java 21.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,473 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The InventorySnapshot class is an immutable, point-in-time view of an
+ * Inventory, taken with Inventory.snapshot. Reports and long scans read the
+ * snapshot instead of the live inventory, so they hold no lock and never see
+ * a half-applied change, while restocks and other writes carry on.
+ * The rows are stored in columns, in the order of Inventory.getDevices. The
+ * inventory keeps a Layout of the names and categories, which change only
+ * when devices are added, removed, renamed or moved, together with live
+ * price and quantity columns that it updates as the stock changes. The
+ * columns are split into chunks that are copied on write: taking a snapshot
+ * only marks the current chunks as shared, and the next change of a row
+ * copies the one chunk it falls in. Consecutive snapshots share every chunk
+ * that did not change between them.
+ * Devices are exposed through the Device interface as read-only views over a
+ * row.
+ */
+public final class InventorySnapshot {
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final int CHUNK_SHIFT = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final String[] names;
+    private final int[] categoryStarts;
+    private final double[][] prices;
+    private final int[][] quantities;
+    private final long[] categoryValueInCents;
+
+    /**
+     * Constructs a snapshot over frozen chunks.
+     * Time Complexity: O(1)
+     *
+     * @param names                The name of each row.
+     * @param categoryStarts       The first row of each category, followed by
+     *                             the number of rows.
+     * @param prices               The price chunks.
+     * @param quantities           The quantity chunks.
+     * @param categoryValueInCents The value of each category.
+     */
+    private InventorySnapshot(String[] names, int[] categoryStarts, double[][] prices, int[][] quantities,
+                              long[] categoryValueInCents) {
+        this.names = names;
+        this.categoryStarts = categoryStarts;
+        this.prices = prices;
+        this.quantities = quantities;
+        this.categoryValueInCents = categoryValueInCents;
+    }
+
+    /**
+     * Returns the number of devices in the snapshot.
+     * Time Complexity: O(1)
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns all devices of the snapshot, ordered by category, then in the
+     * order they were added.
+     * Time Complexity: O(1) - The list is a view over the rows.
+     *
+     * @return A read-only list of read-only devices.
+     */
+    public List<Device> getDevices() {
+        return new Rows(0, names.length);
+    }
+
+    /**
+     * Returns the devices of one category.
+     * Time Complexity: O(1) - The list is a view over the rows.
+     *
+     * @param category The category.
+     * @return A read-only list of read-only devices.
+     */
+    public List<Device> getDevices(Category category) {
+        return new Rows(categoryStarts[category.ordinal()], categoryStarts[category.ordinal() + 1]);
+    }
+
+    /**
+     * Returns the total value of the devices in the snapshot.
+     * Time Complexity: O(1) - The number of categories is fixed.
+     *
+     * @return The total value in cents.
+     */
+    public long getTotalValueInCents() {
+        long total = 0;
+        for (long value : categoryValueInCents) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the value of the devices of one category in the snapshot.
+     * Time Complexity: O(1)
+     *
+     * @param category The category.
+     * @return The category value in cents.
+     */
+    public long getCategoryValueInCents(Category category) {
+        return categoryValueInCents[category.ordinal()];
+    }
+
+    /**
+     * Writes the report of the whole snapshot to the given file, in the same
+     * layout as Inventory.writeReport.
+     * Time Complexity: O(n)
+     *
+     * @param path   The file to write.
+     * @param format The report format.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeReport(Path path, InventoryExporter.Format format) throws IOException {
+        writeRows(path, format, getDevices(), getTotalValueInCents());
+    }
+
+    /**
+     * Writes the report of one category of the snapshot to the given file.
+     * Time Complexity: O(c) where c is the number of devices in the category.
+     *
+     * @param path     The file to write.
+     * @param format   The report format.
+     * @param category The category to write.
+     * @return The number of devices written.
+     * @throws IOException if the file cannot be written.
+     */
+    public int writeCategoryReport(Path path, InventoryExporter.Format format, Category category)
+            throws IOException {
+        return writeRows(path, format, getDevices(category), getCategoryValueInCents(category));
+    }
+
+    /**
+     * Streams rows and their summary to a temporary file next to the report
+     * file, then moves it into place atomically. Every call has its own
+     * temporary file, so concurrent writers of one report never interleave,
+     * and readers never see a half-written report.
+     * Time Complexity: O(r) where r is the number of rows.
+     *
+     * @param path              The file to write.
+     * @param format            The report format.
+     * @param rows              The rows to write.
+     * @param totalValueInCents The value shown in the summary.
+     * @return The number of rows written.
+     * @throws IOException if the file cannot be written.
+     */
+    private static int writeRows(Path path, InventoryExporter.Format format, List<Device> rows,
+                                 long totalValueInCents) throws IOException {
+        Path written = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName() + ".", ".tmp");
+        try {
+            int count;
+            try (InventoryExporter exporter = new InventoryExporter(written, format)) {
+                exporter.writeHeader();
+                for (Device row : rows) {
+                    exporter.writeDevice(row);
+                }
+                exporter.writeSummary(exporter.getCount(), totalValueInCents);
+                count = exporter.getCount();
+            }
+            Files.move(written, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return count;
+        } finally {
+            Files.deleteIfExists(written); // Only left behind if the report failed
+        }
+    }
+
+    /**
+     * Finds the category of a row.
+     * Time Complexity: O(1) - The number of categories is fixed.
+     *
+     * @param row The row index.
+     * @return The category of the row.
+     */
+    private Category categoryOf(int row) {
+        int c = 0;
+        while (row >= categoryStarts[c + 1]) {
+            c++;
+        }
+        return CATEGORIES[c];
+    }
+
+    /**
+     * A read-only list of row views over a range of rows.
+     */
+    private final class Rows extends AbstractList<Device> {
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructs the list of the rows in [from, to).
+         * Time Complexity: O(1)
+         *
+         * @param from The first row.
+         * @param to   The row after the last.
+         */
+        Rows(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Returns a view of one row.
+         * Time Complexity: O(1)
+         *
+         * @param index The index within this list.
+         * @return The read-only device.
+         */
+        @Override
+        public Device get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+            }
+            return new RowView(from + index);
+        }
+
+        /**
+         * Returns the number of rows in this list.
+         * Time Complexity: O(1)
+         *
+         * @return The number of rows.
+         */
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * A read-only Device view over one row of the snapshot.
+     */
+    private final class RowView implements Device {
+        private final int row;
+
+        /**
+         * Constructs a view over the given row.
+         * Time Complexity: O(1)
+         *
+         * @param row The row index.
+         */
+        RowView(int row) {
+            this.row = row;
+        }
+
+        /**
+         * Gets the category of the row.
+         * Time Complexity: O(1)
+         *
+         * @return The category display name.
+         */
+        @Override
+        public String getCategory() {
+            return categoryOf(row).getDisplayName();
+        }
+
+        /**
+         * Gets the name of the row.
+         * Time Complexity: O(1)
+         *
+         * @return The device name.
+         */
+        @Override
+        public String getName() {
+            return names[row];
+        }
+
+        /**
+         * Gets the price of the row.
+         * Time Complexity: O(1)
+         *
+         * @return The device price.
+         */
+        @Override
+        public double getPrice() {
+            return prices[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+        }
+
+        /**
+         * Gets the quantity of the row.
+         * Time Complexity: O(1)
+         *
+         * @return The device quantity.
+         */
+        @Override
+        public int getQuantity() {
+            return quantities[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+        }
+
+        /**
+         * Snapshots are immutable.
+         *
+         * @param category Ignored.
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public void setCategory(String category) {
+            throw readOnly();
+        }
+
+        /**
+         * Snapshots are immutable.
+         *
+         * @param name Ignored.
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+
+        /**
+         * Snapshots are immutable.
+         *
+         * @param price Ignored.
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public void setPrice(double price) {
+            throw readOnly();
+        }
+
+        /**
+         * Snapshots are immutable.
+         *
+         * @param quantity Ignored.
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public void setQuantity(int quantity) {
+            throw readOnly();
+        }
+
+        /**
+         * Snapshots are immutable, so listeners are not supported.
+         *
+         * @param listener Ignored.
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public void setListener(DeviceListener listener) {
+            throw readOnly();
+        }
+
+        /**
+         * Creates the exception thrown by the setters.
+         * Time Complexity: O(1)
+         *
+         * @return The exception.
+         */
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Snapshot rows are read-only.");
+        }
+    }
+
+    /**
+     * The names and categories of the devices of an inventory, with live
+     * price and quantity columns that snapshots are captured from. The owner
+     * reports every stock change of its devices to the layout, and replaces
+     * the layout when devices are added, removed, renamed or moved. Changes
+     * and captures are serialized on the layout's monitor; each holds it for
+     * O(1), apart from the chunk copies described below.
+     */
+    static final class Layout {
+        private final String[] names;
+        private final int[] categoryStarts;
+        private final Map<Device, Integer> rows;
+        private final long[] values;
+        private double[][] prices;
+        private int[][] quantities;
+        // Chunks owned by the layout; null while the chunk tables are shared with a snapshot
+        private boolean[] ownChunks;
+
+        /**
+         * Builds the layout and fills its columns from the devices. The
+         * caller keeps the devices from changing while they are read.
+         * Time Complexity: O(n)
+         *
+         * @param devices The devices, ordered by category as by
+         *                Inventory.getDevices.
+         */
+        Layout(List<Device> devices) {
+            int size = devices.size();
+            int chunks = (size + CHUNK_MASK) >>> CHUNK_SHIFT;
+            names = new String[size];
+            categoryStarts = new int[CATEGORIES.length + 1];
+            rows = new IdentityHashMap<>(size);
+            values = new long[CATEGORIES.length];
+            prices = new double[chunks][];
+            quantities = new int[chunks][];
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int length = Math.min(CHUNK_SIZE, size - (chunk << CHUNK_SHIFT));
+                prices[chunk] = new double[length];
+                quantities[chunk] = new int[length];
+            }
+            ownChunks = new boolean[chunks];
+            Arrays.fill(ownChunks, true);
+            for (int row = 0; row < size; row++) {
+                Device device = devices.get(row);
+                int category = Category.fromDisplayName(device.getCategory()).ordinal();
+                double price = device.getPrice();
+                int quantity = device.getQuantity();
+                names[row] = device.getName();
+                categoryStarts[category + 1]++;
+                rows.put(device, row);
+                prices[row >>> CHUNK_SHIFT][row & CHUNK_MASK] = price;
+                quantities[row >>> CHUNK_SHIFT][row & CHUNK_MASK] = quantity;
+                values[category] += Inventory.valueInCents(price, quantity);
+            }
+            for (int c = 0; c < CATEGORIES.length; c++) {
+                categoryStarts[c + 1] += categoryStarts[c];
+            }
+        }
+
+        /**
+         * Captures a snapshot of the current columns. The chunks are shared
+         * with the snapshot and copied by the next change that touches them.
+         * Time Complexity: O(1) - The number of categories is fixed.
+         *
+         * @return The snapshot.
+         */
+        synchronized InventorySnapshot capture() {
+            ownChunks = null;
+            return new InventorySnapshot(names, categoryStarts, prices, quantities, values.clone());
+        }
+
+        /**
+         * Records the new stock of a device. The first change after a capture
+         * copies the chunk tables; the first change of each chunk after a
+         * capture copies that chunk.
+         * Time Complexity: O(1), O(c) for the first change of a chunk after a
+         * capture where c is the chunk size, plus O(n / c) for the first
+         * change after a capture.
+         *
+         * @param device     The device that changed.
+         * @param category   The category of the device.
+         * @param price      The price after the change.
+         * @param quantity   The quantity after the change.
+         * @param valueDelta The change of the stock value, in cents.
+         */
+        synchronized void stockChanged(Device device, Category category, double price, int quantity,
+                                       long valueDelta) {
+            Integer row = rows.get(device);
+            if (row == null) {
+                return;
+            }
+            int chunk = row >>> CHUNK_SHIFT;
+            if (ownChunks == null) {
+                prices = prices.clone();
+                quantities = quantities.clone();
+                ownChunks = new boolean[prices.length];
+            }
+            if (!ownChunks[chunk]) {
+                prices[chunk] = prices[chunk].clone();
+                quantities[chunk] = quantities[chunk].clone();
+                ownChunks[chunk] = true;
+            }
+            prices[chunk][row & CHUNK_MASK] = price;
+            quantities[chunk][row & CHUNK_MASK] = quantity;
+            values[category.ordinal()] += valueDelta;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class counts latencies in log-linear buckets: each
+ * power of two is split into 32 equal buckets, so any recorded value is
+ * known within about 3% while the histogram stays a fixed array of under
+ * two thousand counters, whatever the range of the values. Percentiles are
+ * read from the counts without keeping the samples.
+ * Recording is lock-free: one atomic increment of the value's bucket, and a
+ * compare-and-set of the maximum only when it grows. The count is derived
+ * from the buckets, so there is no shared counter for all threads to
+ * contend on. Reads made while other threads record see each bucket at some
+ * recent value, which is all monitoring needs.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong max;
+
+    /**
+     * Constructs an empty histogram.
+     * Time Complexity: O(1) - The number of buckets is fixed.
+     */
+    LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        max = new AtomicLong();
+    }
+
+    /**
+     * Records one latency.
+     * Time Complexity: O(1)
+     *
+     * @param nanos The latency in nanoseconds; negative values count as 0.
+     */
+    void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.getAndIncrement(bucketOf(value));
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Adds the counts of another histogram to this one.
+     * Time Complexity: O(1) - The number of buckets is fixed.
+     *
+     * @param other The histogram to add.
+     */
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.getAndAdd(i, count);
+            }
+        }
+        long otherMax = other.max.get();
+        long current = max.get();
+        while (otherMax > current && !max.compareAndSet(current, otherMax)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Clears the histogram. Latencies recorded while it is being cleared may
+     * be kept or dropped.
+     * Time Complexity: O(1) - The number of buckets is fixed.
+     */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    /**
+     * Gets the number of recorded latencies.
+     * Time Complexity: O(1) - The number of buckets is fixed.
+     *
+     * @return The count.
+     */
+    long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the highest recorded latency, exactly.
+     * Time Complexity: O(1)
+     *
+     * @return The maximum in nanoseconds, 0 if nothing was recorded.
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the latency below or at which the given share of the recorded
+     * latencies lie, rounded up to the top of its bucket.
+     * Time Complexity: O(1) - The number of buckets is fixed.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency in nanoseconds, 0 if nothing was recorded.
+     */
+    long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        long highest = max.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), highest);
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * Finds the bucket of a value.
+     * Time Complexity: O(1)
+     *
+     * @param value The non-negative value.
+     * @return The bucket index.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Gets the highest value that falls in a bucket.
+     * Time Complexity: O(1)
+     *
+     * @param bucket The bucket index.
+     * @return The highest value of the bucket.
+     */
+    private static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return ((long) (bucket % SUB_BUCKETS + SUB_BUCKETS + 1) << shift) - 1;
+    }
+}
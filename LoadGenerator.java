@@ -0,0 +1,646 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The LoadGenerator class drives a ConcurrentInventory with a realistic mix
+ * of operations from several threads and reports the throughput and latency
+ * percentiles of every operation type.
+ * Operations are command lines of the CommandProcessor protocol, so a run can
+ * be recorded to a trace file and replayed later; a trace is also a valid
+ * script for "Main --batch". A trace holds the commands in the order they
+ * completed, and a replay starts them in that order. Every replay runs on a
+ * fresh copy of the recorded inventory; warmup replays run first and are not
+ * reported, like the warmup time of a generated run. The devices a run works on are named SKU-0 to
+ * SKU-(n-1), and the device each operation targets is drawn with Zipf's law,
+ * so a few hot SKUs take most of the traffic. The latency of an operation
+ * includes parsing its command line.
+ * Usage: java LoadGenerator [--devices n] [--threads t] [--duration seconds]
+ * [--warmup seconds] [--mix GET=80,RESTOCK=15,UPDATE=4,EXPORT=1] [--skew s]
+ * [--seed x] [--record file] [--replay file] [--warmup-replays w] [--replays r].
+ * EXPORT operations write inventory.txt to the working directory.
+ */
+public class LoadGenerator {
+
+    /** Operation types the mix can name, with the command each one sends. */
+    private static final String[] OPERATIONS = {"GET", "RESTOCK", "UPDATE", "EXPORT", "SEARCH", "TOP", "VALUE", "SORT"};
+    private static final String DEFAULT_MIX = "GET=80,RESTOCK=15,UPDATE=4,EXPORT=1";
+    private static final String TRACE_HEADER = "# load trace devices=";
+    private static final int RECORD_FLUSH_CHARS = 64 * 1024;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final int devices;
+    private final int threads;
+    private final double skew;
+    private final long seed;
+    private final String[] operations;
+    private final int[] cumulativeWeights;
+
+    /**
+     * Constructs a generator.
+     * Time Complexity: O(1)
+     *
+     * @param devices The number of devices in the inventory.
+     * @param threads The number of client threads.
+     * @param mix     The operation weights, e.g. "GET=80,RESTOCK=20".
+     * @param skew    The Zipf exponent of the device choice.
+     * @param seed    The seed of the inventory and of the operations.
+     * @throws IllegalArgumentException if an argument is out of range or the
+     *                                  mix names an unknown operation.
+     */
+    public LoadGenerator(int devices, int threads, String mix, double skew, long seed) {
+        if (devices < 1 || threads < 1) {
+            throw new IllegalArgumentException("The numbers of devices and threads must be at least 1.");
+        }
+        this.devices = devices;
+        this.threads = threads;
+        this.skew = skew;
+        this.seed = seed;
+        List<String> names = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int total = 0;
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            String operation = parts[0].trim().toUpperCase(Locale.ROOT);
+            if (parts.length != 2 || !isOperation(operation)) {
+                throw new IllegalArgumentException("Invalid mix entry '" + entry + "'.");
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Invalid mix entry '" + entry + "'.");
+            }
+            total += weight;
+            names.add(operation);
+            weights.add(total);
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("The mix must have a positive weight.");
+        }
+        operations = names.toArray(new String[0]);
+        cumulativeWeights = new int[weights.size()];
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            cumulativeWeights[i] = weights.get(i);
+        }
+    }
+
+    /**
+     * Runs the generator from the command line and prints the report.
+     * Time Complexity: O(n log n) for the setup, then the duration of the run.
+     *
+     * @param args The options described in the class comment.
+     * @throws IOException if a trace cannot be read or written.
+     * @throws InterruptedException if the run is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                System.err.println("Usage: java LoadGenerator [--devices n] [--threads t] [--duration seconds]"
+                        + " [--warmup seconds] [--mix " + DEFAULT_MIX + "] [--skew s] [--seed x]"
+                        + " [--record file] [--replay file] [--warmup-replays w] [--replays r]");
+                System.exit(2);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+
+        String replay = options.get("replay");
+        List<String> trace = null;
+        int devices = Integer.parseInt(options.getOrDefault("devices", "100000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        if (replay != null) {
+            trace = readTrace(Paths.get(replay));
+            // The trace header restores the inventory the trace was recorded on
+            String header = trace.isEmpty() ? "" : trace.get(0);
+            if (header.startsWith(TRACE_HEADER)) {
+                String[] fields = header.substring(TRACE_HEADER.length()).split(" seed=");
+                devices = Integer.parseInt(fields[0]);
+                seed = Long.parseLong(fields[1]);
+                trace.remove(0);
+            }
+        }
+        LoadGenerator generator = new LoadGenerator(devices,
+                Integer.parseInt(options.getOrDefault("threads", "4")),
+                options.getOrDefault("mix", DEFAULT_MIX),
+                Double.parseDouble(options.getOrDefault("skew", "0.99")),
+                seed);
+
+        Report report;
+        if (trace != null) {
+            report = generator.replay(trace,
+                    Integer.parseInt(options.getOrDefault("warmup-replays", "1")),
+                    Integer.parseInt(options.getOrDefault("replays", "1")));
+        } else {
+            String record = options.get("record");
+            report = generator.run(generator.createInventory(),
+                    Math.round(Double.parseDouble(options.getOrDefault("warmup", "2")) * 1e9),
+                    Math.round(Double.parseDouble(options.getOrDefault("duration", "10")) * 1e9),
+                    record == null ? null : Paths.get(record));
+        }
+        report.print(System.out);
+    }
+
+    /**
+     * Creates the inventory a run works on: devices SKU-0 to SKU-(n-1) with
+     * random categories and prices, the same for the same seed.
+     * Time Complexity: O(n log n)
+     *
+     * @return The filled inventory.
+     */
+    public ConcurrentInventory createInventory() {
+        SplittableRandom random = new SplittableRandom(seed);
+        Category[] categories = Category.values();
+        ConcurrentInventory inventory = new ConcurrentInventory();
+        List<ReservableDevice> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < devices; i++) {
+            Category category = categories[random.nextInt(categories.length)];
+            batch.add(category.createDevice("SKU-" + i, (100 + random.nextInt(500_000)) / 100.0, 1_000));
+            if (batch.size() == 10_000 || i == devices - 1) {
+                inventory.addDevices(batch);
+                batch.clear();
+            }
+        }
+        return inventory;
+    }
+
+    /**
+     * Runs generated operations from every thread for a fixed time. The
+     * operations of the warmup are executed but not reported or recorded.
+     * Recorded commands are appended to one shared buffer as they complete,
+     * so the trace keeps their order across threads.
+     * Time Complexity: the warmup plus the duration.
+     *
+     * @param inventory The inventory to drive.
+     * @param warmup    The warmup time in nanoseconds.
+     * @param duration  The measured time in nanoseconds.
+     * @param record    The trace file to write, or null.
+     * @return The report of the measured operations.
+     * @throws IOException if the trace cannot be written.
+     * @throws InterruptedException if the run is interrupted.
+     */
+    public Report run(Inventory inventory, long warmup, long duration, Path record)
+            throws IOException, InterruptedException {
+        CommandProcessor processor = new CommandProcessor(inventory);
+        ZipfSampler sampler = new ZipfSampler(devices, skew);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup;
+        long end = measureFrom + duration;
+        try (BufferedWriter traceWriter = record == null ? null
+                : Files.newBufferedWriter(record, StandardCharsets.UTF_8)) {
+            TraceRecorder recorder = traceWriter == null ? null : new TraceRecorder(traceWriter);
+            if (traceWriter != null) {
+                traceWriter.write(TRACE_HEADER + devices + " seed=" + seed + "\n");
+            }
+            Worker[] workers = new Worker[threads];
+            for (int t = 0; t < threads; t++) {
+                SplittableRandom random = new SplittableRandom(seed * 31 + t);
+                workers[t] = new Worker(processor, worker -> {
+                    while (true) {
+                        long now = System.nanoTime();
+                        if (now >= end) {
+                            return;
+                        }
+                        String command = nextCommand(random, sampler);
+                        if (now >= measureFrom) {
+                            worker.executeMeasured(command);
+                            if (recorder != null) {
+                                recorder.record(command);
+                            }
+                        } else {
+                            worker.execute(command);
+                        }
+                    }
+                });
+            }
+            Report report = runWorkers(workers);
+            report.elapsedNanos = Math.max(System.nanoTime() - measureFrom, 1);
+            if (recorder != null) {
+                recorder.flush();
+            }
+            return report;
+        }
+    }
+
+    /**
+     * Replays a trace several times, each time on a fresh inventory created
+     * by createInventory, so every replay starts from the state the trace was
+     * recorded on. The warmup replays let the JIT compile the hot paths and
+     * are not reported.
+     * Time Complexity: (w + r) times the setup and the replay.
+     *
+     * @param trace   The commands, without comments.
+     * @param warmups The number of unreported warmup replays.
+     * @param replays The number of measured replays, at least 1.
+     * @return The merged report of the measured replays.
+     * @throws InterruptedException if a replay is interrupted.
+     * @throws IllegalArgumentException if replays is less than 1.
+     */
+    public Report replay(List<String> trace, int warmups, int replays) throws InterruptedException {
+        if (replays < 1) {
+            throw new IllegalArgumentException("At least one replay must be measured.");
+        }
+        for (int i = 0; i < warmups; i++) {
+            replay(createInventory(), trace);
+        }
+        Report report = new Report();
+        report.elapsedNanos = 0;
+        for (int i = 0; i < replays; i++) {
+            report.add(replay(createInventory(), trace));
+        }
+        return report;
+    }
+
+    /**
+     * Replays the commands of a trace from every thread, as fast as they can
+     * be executed. Threads claim the commands one at a time, so they start in
+     * trace order; with one thread, they also complete in trace order.
+     * Time Complexity: O(c) commands, plus their own cost.
+     *
+     * @param inventory The inventory to drive.
+     * @param trace     The commands, without comments.
+     * @return The report of the replay.
+     * @throws InterruptedException if the replay is interrupted.
+     */
+    public Report replay(Inventory inventory, List<String> trace) throws InterruptedException {
+        CommandProcessor processor = new CommandProcessor(inventory);
+        AtomicInteger next = new AtomicInteger();
+        Worker[] workers = new Worker[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Worker(processor, worker -> {
+                int index;
+                while ((index = next.getAndIncrement()) < trace.size()) {
+                    worker.executeMeasured(trace.get(index));
+                }
+            });
+        }
+        long start = System.nanoTime();
+        Report report = runWorkers(workers);
+        report.elapsedNanos = Math.max(System.nanoTime() - start, 1);
+        return report;
+    }
+
+    /**
+     * Starts the workers, waits for them and merges their measurements. The
+     * caller sets the measured time of the report.
+     * Time Complexity: the time of the slowest worker.
+     *
+     * @param workers The workers.
+     * @return The merged report.
+     * @throws InterruptedException if the wait is interrupted.
+     * @throws IllegalStateException if a worker failed.
+     */
+    private static Report runWorkers(Worker[] workers) throws InterruptedException {
+        Thread[] running = new Thread[workers.length];
+        for (int t = 0; t < workers.length; t++) {
+            running[t] = new Thread(workers[t], "load-" + t);
+            running[t].start();
+        }
+        for (Thread thread : running) {
+            thread.join();
+        }
+        Report report = new Report();
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new IllegalStateException("A load thread failed.", worker.failure);
+            }
+            report.add(worker);
+        }
+        return report;
+    }
+
+    /**
+     * Builds the next generated command.
+     * Time Complexity: O(k) where k is the number of operation types.
+     *
+     * @param random  The random source of the calling thread.
+     * @param sampler The device sampler.
+     * @return The command line.
+     */
+    private String nextCommand(SplittableRandom random, ZipfSampler sampler) {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (draw >= cumulativeWeights[index]) {
+            index++;
+        }
+        String name = "SKU-" + (sampler.next(random) - 1);
+        switch (operations[index]) {
+            case "GET":
+                return "GET\t" + name;
+            case "RESTOCK":
+                return "RESTOCK\t" + name + (random.nextBoolean() ? "\tADD\t" : "\tREMOVE\t")
+                        + (1 + random.nextInt(10));
+            case "UPDATE":
+                return "UPDATE\t" + name + "\t" + ((100 + random.nextInt(500_000)) / 100.0) + "\t-";
+            case "EXPORT":
+                return "EXPORT";
+            case "SEARCH":
+                return "SEARCH\t" + name.substring(4) + "\t20";
+            case "TOP":
+                return "TOP\tMOST_VALUABLE\t20";
+            case "VALUE":
+                return "VALUE";
+            case "SORT":
+            default:
+                return "SORT";
+        }
+    }
+
+    /**
+     * Tells whether a mix may name the given operation.
+     * Time Complexity: O(1) - The number of operation types is fixed.
+     *
+     * @param operation The upper-case operation name.
+     * @return true if the operation is known.
+     */
+    private static boolean isOperation(String operation) {
+        for (String known : OPERATIONS) {
+            if (known.equals(operation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the commands of a trace, dropping blank lines and comments other
+     * than the header.
+     * Time Complexity: O(c) where c is the number of lines.
+     *
+     * @param path The trace file.
+     * @return The header, if any, followed by the commands.
+     * @throws IOException if the file cannot be read.
+     */
+    private static List<String> readTrace(Path path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                boolean header = lines.isEmpty() && line.startsWith(TRACE_HEADER);
+                if (header || !(line.trim().isEmpty() || line.charAt(0) == '#')) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * The body of a load thread.
+     */
+    private interface Loop {
+
+        /**
+         * Executes commands until the run is over.
+         * Time Complexity: the length of the run.
+         *
+         * @param worker The worker running the loop.
+         * @throws IOException if the trace cannot be written.
+         */
+        void run(Worker worker) throws IOException;
+    }
+
+    /**
+     * One load thread with its own latency histograms, so recording never
+     * contends.
+     */
+    private static final class Worker implements Runnable {
+        private final CommandProcessor processor;
+        private final Loop loop;
+        private final StringBuilder reply;
+        private final Map<String, LatencyHistogram> histograms;
+        private final Map<String, long[]> errors;
+        private Throwable failure;
+
+        /**
+         * Constructs a worker.
+         * Time Complexity: O(1)
+         *
+         * @param processor The processor executing the commands.
+         * @param loop      The body of the thread.
+         */
+        Worker(CommandProcessor processor, Loop loop) {
+            this.processor = processor;
+            this.loop = loop;
+            this.reply = new StringBuilder(256);
+            this.histograms = new HashMap<>();
+            this.errors = new HashMap<>();
+        }
+
+        /**
+         * Runs the loop, keeping any failure for the report.
+         * Time Complexity: the length of the run.
+         */
+        @Override
+        public void run() {
+            try {
+                loop.run(this);
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Executes a command without measuring it.
+         * Time Complexity: the cost of the command.
+         *
+         * @param command The command line.
+         * @return true if the reply was OK.
+         * @throws IOException never; replies go to memory.
+         */
+        boolean execute(String command) throws IOException {
+            reply.setLength(0);
+            return processor.execute(command, reply);
+        }
+
+        /**
+         * Executes a command and records its latency and outcome under its
+         * keyword.
+         * Time Complexity: the cost of the command.
+         *
+         * @param command The command line.
+         * @throws IOException never; replies go to memory.
+         */
+        void executeMeasured(String command) throws IOException {
+            long start = System.nanoTime();
+            boolean ok = execute(command);
+            long latency = System.nanoTime() - start;
+            int tab = command.indexOf('\t');
+            String keyword = (tab < 0 ? command : command.substring(0, tab)).toUpperCase(Locale.ROOT);
+            histograms.computeIfAbsent(keyword, k -> new LatencyHistogram()).record(latency);
+            if (!ok) {
+                errors.computeIfAbsent(keyword, k -> new long[1])[0]++;
+            }
+        }
+    }
+
+    /**
+     * Appends the commands of a recorded run to the trace in the order they
+     * complete, buffering them so the trace is written in large blocks.
+     */
+    private static final class TraceRecorder {
+        private final Writer trace;
+        private final StringBuilder pending;
+
+        /**
+         * Constructs a recorder.
+         * Time Complexity: O(1)
+         *
+         * @param trace The trace writer.
+         */
+        TraceRecorder(Writer trace) {
+            this.trace = trace;
+            this.pending = new StringBuilder(RECORD_FLUSH_CHARS);
+        }
+
+        /**
+         * Appends a command, writing the buffered commands in one block when
+         * the buffer is full.
+         * Time Complexity: O(k) where k is the length of the command.
+         *
+         * @param command The command line.
+         * @throws IOException if the trace cannot be written.
+         */
+        synchronized void record(String command) throws IOException {
+            pending.append(command).append('\n');
+            if (pending.length() >= RECORD_FLUSH_CHARS) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the buffered commands to the trace.
+         * Time Complexity: O(b) where b is the number of buffered characters.
+         *
+         * @throws IOException if the trace cannot be written.
+         */
+        synchronized void flush() throws IOException {
+            trace.append(pending);
+            pending.setLength(0);
+        }
+    }
+
+    /**
+     * The throughput and latency percentiles of a run, per operation type and
+     * in total.
+     */
+    public static final class Report {
+        private final Map<String, LatencyHistogram> histograms = new TreeMap<>();
+        private final Map<String, Long> errors = new TreeMap<>();
+        private final LatencyHistogram total = new LatencyHistogram();
+        private long elapsedNanos = 1;
+
+        /**
+         * Merges the measurements and the measured time of another report.
+         * Time Complexity: O(k) where k is the number of operation types.
+         *
+         * @param other The report of another measured replay.
+         */
+        private void add(Report other) {
+            for (Map.Entry<String, LatencyHistogram> entry : other.histograms.entrySet()) {
+                histograms.computeIfAbsent(entry.getKey(), k -> new LatencyHistogram()).add(entry.getValue());
+            }
+            for (Map.Entry<String, Long> entry : other.errors.entrySet()) {
+                errors.merge(entry.getKey(), entry.getValue(), Long::sum);
+            }
+            total.add(other.total);
+            elapsedNanos += other.elapsedNanos;
+        }
+
+        /**
+         * Merges the measurements of a worker.
+         * Time Complexity: O(k) where k is the number of operation types.
+         *
+         * @param worker The finished worker.
+         */
+        private void add(Worker worker) {
+            for (Map.Entry<String, LatencyHistogram> entry : worker.histograms.entrySet()) {
+                histograms.computeIfAbsent(entry.getKey(), k -> new LatencyHistogram()).add(entry.getValue());
+                total.add(entry.getValue());
+            }
+            for (Map.Entry<String, long[]> entry : worker.errors.entrySet()) {
+                errors.merge(entry.getKey(), entry.getValue()[0], Long::sum);
+            }
+        }
+
+        /**
+         * Gets the number of measured operations.
+         * Time Complexity: O(1)
+         *
+         * @return The operation count.
+         */
+        public long getOperations() {
+            return total.getCount();
+        }
+
+        /**
+         * Gets the measured throughput.
+         * Time Complexity: O(1)
+         *
+         * @return Operations per second over the measured time.
+         */
+        public double getThroughput() {
+            return total.getCount() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Prints one line per operation type and a total line: the count, the
+         * share of ERR replies, the throughput and the latency percentiles in
+         * microseconds.
+         * Time Complexity: O(k) where k is the number of operation types.
+         *
+         * @param out Where the report is printed.
+         */
+        public void print(PrintStream out) {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("%-10s %12s %7s %12s", "operation", "count", "err%", "ops/s"));
+            for (double percentile : PERCENTILES) {
+                text.append(String.format(" %10s", "p" + (percentile == Math.rint(percentile)
+                        ? Long.toString((long) percentile) : Double.toString(percentile)) + "(us)"));
+            }
+            text.append(String.format(" %10s%n", "max(us)"));
+            for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+                appendLine(text, entry.getKey(), entry.getValue(), errors.getOrDefault(entry.getKey(), 0L));
+            }
+            long allErrors = 0;
+            for (long count : errors.values()) {
+                allErrors += count;
+            }
+            appendLine(text, "TOTAL", total, allErrors);
+            text.append(String.format("elapsed %.2f s%n", elapsedNanos / 1e9));
+            out.print(text);
+            out.flush();
+        }
+
+        /**
+         * Appends the line of one operation type.
+         * Time Complexity: O(1)
+         *
+         * @param text      The report being built.
+         * @param name      The operation type.
+         * @param histogram Its latencies.
+         * @param failed    Its number of ERR replies.
+         */
+        private void appendLine(StringBuilder text, String name, LatencyHistogram histogram, long failed) {
+            long count = histogram.getCount();
+            text.append(String.format("%-10s %12d %7.2f %12.0f", name, count,
+                    count == 0 ? 0.0 : failed * 100.0 / count, count * 1e9 / elapsedNanos));
+            for (double percentile : PERCENTILES) {
+                text.append(String.format(" %10.1f", histogram.getPercentile(percentile) / 1e3));
+            }
+            text.append(String.format(" %10.1f%n", histogram.getMax() / 1e3));
+        }
+    }
+}
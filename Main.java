@@ -1,23 +1,113 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Locale;
 import java.util.Scanner; // Import Scanner class to read user input
+import javax.management.JMException;
 
 public class Main {
-    public static void main(String[] args) {
+    private static final int DEFAULT_PORT = 7070;
+    private static final int BATCH_BUFFER_SIZE = 64 * 1024;
+
+    public static void main(String[] args) throws IOException {
+        // "--server [port]" serves the inventory to network clients instead of the menu,
+        // "--batch [--persistent] [file]" runs a command script from the file or standard input,
+        // "--import file" adds the devices of a CSV or JSON Lines file, and a trailing "--columnar"
+        // keeps the stock in the primitive columns of a ColumnarInventory
+        boolean columnar = args.length > 0 && args[args.length - 1].equals("--columnar");
+        if (columnar) {
+            args = Arrays.copyOf(args, args.length - 1);
+        }
+        boolean serverMode = args.length > 0 && args[0].equals("--server");
+        boolean batchMode = args.length > 0 && args[0].equals("--batch");
+        boolean importMode = args.length > 0 && args[0].equals("--import");
+        if (importMode && args.length != 2) {
+            System.err.println("Usage: java Main --import <file.csv|file.jsonl> [--columnar]");
+            System.exit(2);
+        }
+        ColumnarInventory columns = columnar ? new ColumnarInventory() : null;
+        Inventory inventory = serverMode ? new ConcurrentInventory(columns) : new Inventory(columns);
+
+        // A script runs against an empty inventory and leaves the stored one alone, unless
+        // "--persistent" asks to apply it to the stored inventory like the menu does
+        boolean persistent = batchMode && args.length > 1 && args[1].equals("--persistent");
+        if (persistent) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        } else if (batchMode) {
+            if (!runBatch(inventory, args.length > 1 ? Paths.get(args[1]) : null)) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        // Rebuild the inventory from the checkpoint and the mutations logged since, then
+        // checkpoint it again so the next start replays nothing older than this run. Persistent
+        // batch runs and imports sync the log once at the end instead of after every group.
+        Path checkpointPath = Paths.get("inventory.dat");
+        Path logPath = Paths.get("inventory.log");
+        boolean firstRun = !Files.exists(checkpointPath) && !Files.exists(logPath);
+        long sequence = 0;
+        if (Files.exists(checkpointPath)) {
+            try (MappedInventory checkpoint = new MappedInventory(checkpointPath, 0)) {
+                checkpoint.loadInto(inventory);
+                sequence = checkpoint.getSequence();
+            }
+        }
+        MutationLog mutationLog = new MutationLog(logPath,
+                batchMode || importMode ? MutationLog.SyncPolicy.OS_DEFAULT : MutationLog.SyncPolicy.GROUP_COMMIT, 32);
+        if (mutationLog.getGeneration() < sequence) {
+            mutationLog.reset(sequence); // Already in the checkpoint; the last run stopped before resetting it
+        } else {
+            mutationLog.replay(inventory);
+        }
+        inventory.setMutationLog(mutationLog);
+        checkpoint(inventory, checkpointPath, mutationLog);
+
+        // Seed the sample devices on the first run only
+        if (firstRun) {
+            ReservableDevice Tv1 = Category.TV.createDevice("LG Oled", 1200, 10);
+            ReservableDevice phone1 = Category.SMART_PHONE.createDevice("Iphone 15", 800, 5);
+            ReservableDevice headphone1 = Category.HEADPHONES.createDevice("Sony WH-CH520", 200, 20);
+            ReservableDevice laptop1 = Category.LAPTOP.createDevice("Dell G3 15", 1500, 15);
+            ReservableDevice watch1 = Category.SMART_WATCH.createDevice("Huawei Watch GT", 300, 10);
+            inventory.addDevice(Tv1);
+            inventory.addDevice(phone1);
+            inventory.addDevice(headphone1);
+            inventory.addDevice(laptop1);
+            inventory.addDevice(watch1);
+        }
+
+        if (serverMode) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+            runServer(inventory, mutationLog, checkpointPath, port);
+            return;
+        }
+        if (batchMode || importMode) {
+            boolean succeeded = batchMode ? runBatch(inventory, args.length > 1 ? Paths.get(args[1]) : null)
+                    : runImport(inventory, Paths.get(args[1]));
+            checkpoint(inventory, checkpointPath, mutationLog);
+            mutationLog.close();
+            if (!succeeded) {
+                System.exit(1);
+            }
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in); // Create a Scanner object
-        Inventory inventory = new Inventory(); // Create an Inventory object
-        TV Tv1 = new TV("TV", "LG Oled", 1200, 10);
-        SmartPhone phone1 = new SmartPhone("Smart Phone", "Iphone 15", 800, 5);
-        Headphones headphone1 = new Headphones("Headphones", "Sony WH-CH520", 200, 20);
-        Laptop laptop1 = new Laptop("Laptop", "Dell G3 15", 1500, 15);
-        SmartWatch watch1 = new SmartWatch("Smart Watch", "Huawei Watch GT", 300, 10);
-        inventory.addDevice(Tv1);
-        inventory.addDevice(phone1);
-        inventory.addDevice(headphone1);
-        inventory.addDevice(laptop1);
-        inventory.addDevice(watch1);
+        InventoryRenderer renderer = new ConsoleRenderer(System.out); // Prints the results of the inventory
         int choice;
         do {
+            renderer.flush(); // Show the results of the previous choice before the menu
             // Display the menu system
             System.out.println("Welcome to the Electronics Inventory Management System!");
             System.out.println("Please select an option:");
@@ -43,16 +133,13 @@ public class Main {
                     scanner.nextLine(); // Clear buffer
                     String category = scanner.nextLine().trim();
 
-                    // List of allowed categories
-                    List<String> allowedCategories = Arrays.asList("Headphones", "TV", "Smart Phone", "Laptop",
-                            "Smart Watch");
-
                     // Check if the entered category is allowed
-                    if (!allowedCategories.contains(category)) {
+                    Category deviceCategory = Category.fromDisplayName(category);
+                    if (deviceCategory == null) {
                         System.out.println("-------------------------------------------------------");
                         System.out.println("Category '" + category
                                 + "' is not allowed. Please choose from the allowed categories.");
-                        System.out.println("Allowed categories: " + allowedCategories);
+                        System.out.println("Allowed categories: " + Arrays.toString(Category.values()));
                         System.out.println("-------------------------------------------------------");
 
                         break;
@@ -94,39 +181,16 @@ public class Main {
                         System.out.println("Invalid quantity format. Please enter a numeric quantity.");
                         break;
                     }
+                    if (quantity < 0) {
+                        System.out.println("Invalid quantity. The quantity cannot be negative.");
+                        break;
+                    }
 
                     // Create a new device instance based on the category
-                    Device newDevice = null;
-                    switch (category) {
-                        case "Smart Phone":
-                            newDevice = new SmartPhone(category, name, price, quantity);
-                            break;
-                        case "TV":
-                            newDevice = new TV(category, name, price, quantity);
-                            break;
-                        case "Headphones":
-                            newDevice = new Headphones(category, name, price, quantity);
-                            break;
-                        case "Laptop":
-                            newDevice = new Laptop(category, name, price, quantity);
-                            break;
-                        case "Smart Watch":
-                            newDevice = new SmartWatch(category, name, price, quantity);
-                            break;
-                        default:
-                            System.out.println("Category not recognized.");
-                            break;
-                    }
+                    ReservableDevice newDevice = deviceCategory.createDevice(name, price, quantity);
 
-                    if (newDevice != null) {
-                        // Add the device to the inventory
-                        inventory.addDevice(newDevice);
-                        // Confirmation message
-                        System.out.println("-------------------------------------------------------");
-                        System.out.println(category + ", " + name + ", " + priceWithCurrency + ", " + quantity
-                                + " amount added...");
-                        System.out.println("-------------------------------------------------------");
-                    }
+                    // Add the device to the inventory
+                    renderer.renderAdd(inventory.addDevice(newDevice));
                     break;
 
                 case 2:
@@ -137,7 +201,7 @@ public class Main {
                     String deviceNameToRemove = scanner.nextLine();
 
                     // Call the removeDevice method with the provided name
-                    inventory.removeDevice(deviceNameToRemove);
+                    renderer.renderRemoval(inventory.removeDevice(deviceNameToRemove));
                     break;
 
                 case 3:
@@ -165,7 +229,7 @@ public class Main {
                         }
 
                         // Update the device details
-                        inventory.updateDeviceDetails(deviceToUpdate, newPrice, newQuantity);
+                        renderer.renderUpdate(inventory.updateDeviceDetails(deviceToUpdate, newPrice, newQuantity));
                     } else {
                         System.out.println("-------------------------------------------------------");
                         System.out.println("Device " + deviceToUpdate + " not found.");
@@ -175,7 +239,7 @@ public class Main {
 
                 case 4:
                     // Code to list all devices
-                    inventory.listAllDevices();
+                    renderer.renderDeviceList(inventory.listAllDevices());
                     break;
                 case 5:
                     // Code to find the cheapest device
@@ -198,7 +262,7 @@ public class Main {
 
                 case 6:
 
-                    inventory.sortDevicesByPrice();
+                    renderer.renderSortedDevices(inventory.sortDevicesByPrice());
                     break;
                 case 7:
                     // Code to calculate total inventory value
@@ -223,12 +287,12 @@ public class Main {
                             System.out.print("Enter the quantity to add: ");
                             quantityChange = scanner.nextInt();
                             scanner.nextLine(); // Consume newline left-over
-                            inventory.restockDevice(deviceNameToRestock, quantityChange, true);
+                            renderer.renderRestock(inventory.restockDevice(deviceNameToRestock, quantityChange, true), true);
                         } else if (action.equalsIgnoreCase("Remove")) {
                             System.out.print("Enter the quantity to remove: ");
                             quantityChange = scanner.nextInt();
                             scanner.nextLine(); // Consume newline left-over
-                            inventory.restockDevice(deviceNameToRestock, quantityChange, false);
+                            renderer.renderRestock(inventory.restockDevice(deviceNameToRestock, quantityChange, false), false);
                         } else {
                             System.out.println("Invalid action. Please enter 'Add' or 'Remove'.");
                             System.out.println("-------------------------------------------------------");
@@ -241,9 +305,7 @@ public class Main {
                     break;
 
                 case 9:
-                    System.out.println("-------------------------------------------------------");
-                    inventory.exportInventoryToFile();
-                    System.out.println("-------------------------------------------------------");
+                    renderer.renderExport(inventory.exportInventoryToFile());
                     break;
 
                 case 0:
@@ -256,7 +318,127 @@ public class Main {
                     break;
             }
         } while (choice != 0);
+        renderer.flush();
 
         scanner.close(); // Close the scanner
+        checkpoint(inventory, checkpointPath, mutationLog); // The next start replays nothing
+        mutationLog.close(); // Sync the last group of mutations
+    }
+
+    /**
+     * Checkpoints the inventory under the next sequence number after the
+     * log's generation, which resets the log. Called on start and on
+     * shutdown, so the log only ever holds the mutations of one run.
+     *
+     * @param inventory      The inventory to checkpoint.
+     * @param checkpointPath The checkpoint file.
+     * @param mutationLog    The log attached to the inventory.
+     * @throws IOException if the checkpoint cannot be written or the log reset.
+     */
+    private static void checkpoint(Inventory inventory, Path checkpointPath, MutationLog mutationLog)
+            throws IOException {
+        try {
+            inventory.writeCheckpoint(checkpointPath, mutationLog.getGeneration() + 1);
+        } catch (IllegalArgumentException e) {
+            System.out.println("The checkpoint was not written, the mutation log is kept: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Serves the inventory over TCP until the process is stopped, then closes
+     * the server, checkpoints the inventory and syncs the mutation log. The
+     * latency of every operation is published over JMX while the server runs.
+     *
+     * @param inventory      The thread-safe inventory to serve.
+     * @param mutationLog    The log attached to the inventory.
+     * @param checkpointPath The checkpoint file.
+     * @param port           The port to listen on.
+     * @throws IOException if the port cannot be bound.
+     */
+    private static void runServer(Inventory inventory, MutationLog mutationLog, Path checkpointPath, int port)
+            throws IOException {
+        InventoryMetrics metrics = new InventoryMetrics();
+        inventory.setMetrics(metrics);
+        try {
+            metrics.registerMBeans("main");
+        } catch (JMException e) {
+            System.out.println("Latency metrics are not available over JMX: " + e.getMessage());
+        }
+        InventoryServer server = new InventoryServer(inventory, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                checkpoint(inventory, checkpointPath, mutationLog);
+                mutationLog.close();
+            } catch (IOException e) {
+                System.out.println("An error occurred while shutting down: " + e.getMessage());
+            }
+        }));
+        server.start();
+        System.out.println("Inventory server listening on 127.0.0.1:" + server.getPort()
+                + (server.usesVirtualThreads() ? " (virtual threads)" : " (thread pool)"));
+        try {
+            server.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Imports the devices of a CSV or JSON Lines file, the format being chosen
+     * by the file extension, and writes the rejected rows and a one-line
+     * summary to standard error.
+     *
+     * @param inventory The inventory to add the devices to.
+     * @param path      The file to import.
+     * @return true if every row was imported.
+     * @throws IOException if the file cannot be read.
+     */
+    private static boolean runImport(Inventory inventory, Path path) throws IOException {
+        String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        InventoryExporter.Format format;
+        if (fileName.endsWith(".csv")) {
+            format = InventoryExporter.Format.CSV;
+        } else if (fileName.endsWith(".jsonl") || fileName.endsWith(".json")) {
+            format = InventoryExporter.Format.JSON_LINES;
+        } else {
+            System.err.println("Cannot import " + path + ": expected a .csv or .jsonl file.");
+            return false;
+        }
+        InventoryImporter.ImportReport report = new InventoryImporter().importFile(path, format, inventory);
+        for (InventoryImporter.Rejection rejection : report.getRejections()) {
+            System.err.println(rejection);
+        }
+        if (report.getRejected() > report.getRejections().size()) {
+            System.err.println("... and " + (report.getRejected() - report.getRejections().size())
+                    + " more rejected rows");
+        }
+        System.err.println(report);
+        return report.getRejected() == 0;
+    }
+
+    /**
+     * Executes a command script without the menu, writing only the replies to
+     * standard output and a one-line summary to standard error.
+     *
+     * @param inventory  The inventory to run the script against.
+     * @param scriptPath The script file, or null to read standard input.
+     * @return true if every command succeeded.
+     * @throws IOException if the script cannot be read or the replies written.
+     */
+    private static boolean runBatch(Inventory inventory, Path scriptPath) throws IOException {
+        long start = System.nanoTime();
+        CommandProcessor.ScriptResult result;
+        try (BufferedReader in = scriptPath != null
+                ? Files.newBufferedReader(scriptPath, StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BATCH_BUFFER_SIZE);
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), BATCH_BUFFER_SIZE)) {
+            result = new CommandProcessor(inventory).executeScript(in, out);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.err.println(result.getExecuted() + " commands executed, " + result.getFailed()
+                + " failed, in " + elapsedMillis + " ms");
+        return result.getFailed() == 0;
     }
-}
\ No newline at end of file
+}
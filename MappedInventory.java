@@ -0,0 +1,763 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The MappedInventory class is an inventory backend that keeps fixed-width
+ * device records in a memory-mapped file. The records live outside the Java
+ * heap, are written straight to the page cache, and are available again as
+ * soon as the file is reopened.
+ * Opening a file only validates its header. The case-insensitive name index
+ * is the only structure on the heap; it is built with one sequential pass
+ * over the records the first time a device is looked up by name, so a file
+ * that is only read in order, like a checkpoint, never pays for it.
+ * The total value is kept in the header in whole cents and updated with
+ * exact arithmetic, so changes that would overflow it are refused.
+ * Devices are exposed through the Device interface as views over a record. A
+ * view stays valid until the next removal, which moves the last record into
+ * the freed slot.
+ * The records are mapped in segments of SEGMENT_RECORDS, so the file can grow
+ * past the 2 GiB of a single mapping, up to Integer.MAX_VALUE records.
+ * Main keeps its startup checkpoint in a MappedInventory file; see
+ * writeCheckpoint and loadInto.
+ */
+public class MappedInventory implements Closeable {
+
+    /** Maximum length of a device name, in UTF-8 bytes. */
+    public static final int MAX_NAME_BYTES = 112;
+
+    /** The number of records mapped by one segment. */
+    public static final int SEGMENT_RECORDS = 1 << 20;
+
+    private static final int MAGIC = 0x494E5632; // "INV2"
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 128;
+    private static final int SEGMENT_SHIFT = 20; // log2 of SEGMENT_RECORDS
+    private static final int SEGMENT_MASK = SEGMENT_RECORDS - 1;
+
+    // Header layout
+    private static final int MAGIC_OFFSET = 0;
+    private static final int COUNT_OFFSET = 8;
+    private static final int VALUE_OFFSET = 16;
+    private static final int SEQUENCE_OFFSET = 24;
+
+    // Record layout
+    private static final int CATEGORY_OFFSET = 0;
+    private static final int NAME_LENGTH_OFFSET = 2;
+    private static final int QUANTITY_OFFSET = 4;
+    private static final int PRICE_OFFSET = 8;
+    private static final int NAME_OFFSET = 16;
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer[] segments;
+    private long capacity;
+    private int size;
+    private long valueInCents;
+    private Map<String, Integer> rowsByName;
+
+    /**
+     * Opens the inventory stored in the given file, creating an empty one if
+     * the file does not exist. The header is checked against the size of the
+     * file, so a truncated or foreign file is refused rather than misread.
+     * Time Complexity: O(s) where s is the number of segments; no record is
+     * read.
+     *
+     * @param path            The file holding the records.
+     * @param initialCapacity The number of records to map when a new file is
+     *                        created.
+     * @throws IOException if the file cannot be opened, mapped, or is not a
+     *                     valid inventory file.
+     */
+    public MappedInventory(Path path, int initialCapacity) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segments = new MappedByteBuffer[0];
+        try {
+            long fileSize = channel.size();
+            if (fileSize != 0 && fileSize < HEADER_SIZE) {
+                throw new IOException(path + " is not an inventory file.");
+            }
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (fileSize == 0) {
+                header.putInt(MAGIC_OFFSET, MAGIC);
+                header.putLong(COUNT_OFFSET, 0);
+                header.putLong(VALUE_OFFSET, 0);
+                header.putLong(SEQUENCE_OFFSET, 0);
+                map(Math.max(initialCapacity, 1));
+            } else {
+                if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+                    throw new IOException(path + " is not an inventory file.");
+                }
+                long records = (fileSize - HEADER_SIZE) / RECORD_SIZE;
+                long count = header.getLong(COUNT_OFFSET);
+                if (count < 0 || count > records || records > Integer.MAX_VALUE) {
+                    throw new IOException(path + " is corrupt: it claims " + count + " records but holds "
+                            + records + ".");
+                }
+                map(Math.max(records, 1));
+                size = (int) count;
+                valueInCents = header.getLong(VALUE_OFFSET);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of devices in the inventory.
+     * Time Complexity: O(1)
+     *
+     * @return The number of records.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the sequence number stored in the header, which Main uses to tell
+     * which mutation log belongs to a checkpoint.
+     * Time Complexity: O(1)
+     *
+     * @return The sequence number, 0 for a new file.
+     */
+    public long getSequence() {
+        return header.getLong(SEQUENCE_OFFSET);
+    }
+
+    /**
+     * Stores a sequence number in the header.
+     * Time Complexity: O(1)
+     *
+     * @param sequence The sequence number.
+     */
+    public void setSequence(long sequence) {
+        header.putLong(SEQUENCE_OFFSET, sequence);
+    }
+
+    /**
+     * Copies a device into a new record. Devices whose category is not allowed,
+     * whose stock value would not fit in whole cents, or whose name is already
+     * taken (ignoring case), are rejected.
+     * Time Complexity: O(1) amortized, plus O(n) the first time the name index
+     * is needed.
+     *
+     * @param device The device to copy into the inventory.
+     * @return true if the device was added, false if it was rejected.
+     * @throws IllegalArgumentException if the name is longer than
+     *                                  MAX_NAME_BYTES in UTF-8.
+     */
+    public boolean addDevice(Device device) {
+        Category category = Category.fromDisplayName(device.getCategory());
+        if (category == null) {
+            return false;
+        }
+        return addDevice(category, device.getName(), device.getPrice(), device.getQuantity());
+    }
+
+    /**
+     * Appends a new record with the given values. Names already taken (ignoring
+     * case) and stock values that would not fit in whole cents are rejected.
+     * Time Complexity: O(1) amortized, plus O(n) the first time the name index
+     * is needed.
+     *
+     * @param category The category of the device.
+     * @param name     The name of the device.
+     * @param price    The price of the device.
+     * @param quantity The quantity in stock.
+     * @return true if the device was added, false if it was rejected.
+     * @throws IllegalArgumentException if the name is longer than
+     *                                  MAX_NAME_BYTES in UTF-8.
+     */
+    public boolean addDevice(Category category, String name, double price, int quantity) {
+        byte[] nameBytes = encodeName(name);
+        String key = nameKey(name);
+        Map<String, Integer> index = index();
+        if (index.containsKey(key) || size == Integer.MAX_VALUE) {
+            return false;
+        }
+        long total;
+        try {
+            total = Math.addExact(valueInCents, Inventory.valueInCents(price, quantity));
+        } catch (ArithmeticException e) {
+            return false;
+        }
+        if (size == capacity) {
+            try {
+                map(Math.min(capacity * 2, Integer.MAX_VALUE));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        int row = size;
+        ByteBuffer segment = segment(row);
+        int base = offset(row);
+        segment.put(base + CATEGORY_OFFSET, (byte) category.ordinal());
+        segment.putInt(base + QUANTITY_OFFSET, quantity);
+        segment.putDouble(base + PRICE_OFFSET, price);
+        writeName(row, nameBytes);
+        index.put(key, row);
+        size++;
+        setValue(total);
+        header.putLong(COUNT_OFFSET, size);
+        return true;
+    }
+
+    /**
+     * Removes a device by name. The last record is copied into the freed slot,
+     * so views previously returned by this inventory may point at another
+     * device afterwards.
+     * Time Complexity: O(1), plus O(n) the first time the name index is
+     * needed.
+     *
+     * @param deviceName The name of the device to remove.
+     * @return true if a device was removed, false if it was not found.
+     */
+    public boolean removeDevice(String deviceName) {
+        Map<String, Integer> index = index();
+        Integer row = index.remove(nameKey(deviceName));
+        if (row == null) {
+            return false;
+        }
+        setValue(valueInCents - Inventory.valueInCents(readPrice(row), readQuantity(row)));
+        int last = size - 1;
+        if (row != last) {
+            ByteBuffer source = segment(last).duplicate();
+            source.position(offset(last)).limit(offset(last) + RECORD_SIZE);
+            ByteBuffer target = segment(row).duplicate();
+            target.position(offset(row));
+            target.put(source);
+            index.put(nameKey(readName(row)), row);
+        }
+        size = last;
+        header.putLong(COUNT_OFFSET, size);
+        return true;
+    }
+
+    /**
+     * Checks if a device exists based on its name, ignoring case.
+     * Time Complexity: O(1), plus O(n) the first time the name index is
+     * needed.
+     *
+     * @param deviceName The name of the device to be checked.
+     * @return true if the device exists, false otherwise.
+     */
+    public boolean deviceExists(String deviceName) {
+        return index().containsKey(nameKey(deviceName));
+    }
+
+    /**
+     * Returns a view of the device with the given name, ignoring case.
+     * Time Complexity: O(1), plus O(n) the first time the name index is
+     * needed.
+     *
+     * @param deviceName The name of the device to look up.
+     * @return A view over the device record, or null if there is none.
+     */
+    public Device getDevice(String deviceName) {
+        Integer row = index().get(nameKey(deviceName));
+        return row == null ? null : new RecordView(row);
+    }
+
+    /**
+     * Finds the device with the minimum price. Ties go to the earliest record.
+     * Time Complexity: O(n) - A single pass over the records.
+     *
+     * @return A view over the cheapest device, or null if the inventory is empty.
+     */
+    public Device findCheapestDevice() {
+        if (size == 0) {
+            return null;
+        }
+        int cheapest = 0;
+        double cheapestPrice = readPrice(0);
+        for (int row = 1; row < size; row++) {
+            double price = readPrice(row);
+            if (price < cheapestPrice) {
+                cheapestPrice = price;
+                cheapest = row;
+            }
+        }
+        return new RecordView(cheapest);
+    }
+
+    /**
+     * Returns the total value of all the devices, counting prices in whole
+     * cents like Inventory does.
+     * Time Complexity: O(1) - The total is kept in the header.
+     *
+     * @return The total inventory value in cents.
+     */
+    public long calculateTotalInventoryValueInCents() {
+        return valueInCents;
+    }
+
+    /**
+     * Returns the total value of all the devices.
+     * Time Complexity: O(1)
+     *
+     * @return The total inventory value as a double.
+     */
+    public double calculateTotalInventoryValue() {
+        return valueInCents / 100.0;
+    }
+
+    /**
+     * Adds a copy of every record to an Inventory, in record order, without
+     * console output or logging. Each record is checked as it is read.
+     * Time Complexity: O(n log n) - Dominated by the inserts into the
+     * inventory's indexes.
+     *
+     * @param inventory The inventory to fill, normally empty.
+     * @return The number of devices added.
+     * @throws IOException if a record is corrupt.
+     */
+    public int loadInto(Inventory inventory) throws IOException {
+        int added = 0;
+        for (int row = 0; row < size; row++) {
+            ByteBuffer segment = segment(row);
+            int base = offset(row);
+            int ordinal = segment.get(base + CATEGORY_OFFSET);
+            int nameLength = segment.getShort(base + NAME_LENGTH_OFFSET);
+            if (ordinal < 0 || ordinal >= CATEGORIES.length || nameLength < 0 || nameLength > MAX_NAME_BYTES
+                    || readQuantity(row) < 0) {
+                throw new IOException(path + " is corrupt at record " + row + ".");
+            }
+            ReservableDevice device = CATEGORIES[ordinal].createDevice(readName(row), readPrice(row), readQuantity(row));
+            if (inventory.applyAdd(device)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Writes the given devices to a new file and moves it over the target in
+     * one atomic step, so a crash leaves either the old or the new file.
+     * Time Complexity: O(n * k) where k is the length of a name, plus an
+     * fsync.
+     *
+     * @param path     The file to write.
+     * @param devices  The devices to store.
+     * @param sequence The sequence number to store in the header.
+     * @throws IOException if the file cannot be written or moved into place.
+     * @throws IllegalArgumentException if a name is longer than MAX_NAME_BYTES
+     *                                  in UTF-8, or the total value would not
+     *                                  fit in whole cents.
+     */
+    public static void writeCheckpoint(Path path, Collection<? extends Device> devices, long sequence)
+            throws IOException {
+        Path written = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(written);
+        try (MappedInventory checkpoint = new MappedInventory(written, devices.size())) {
+            for (Device device : devices) {
+                if (!checkpoint.addDevice(device)) {
+                    throw new IllegalArgumentException("The device '" + device.getName()
+                            + "' cannot be stored in the checkpoint.");
+                }
+            }
+            checkpoint.setSequence(sequence);
+        }
+        Files.move(written, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Flushes modified records to the storage device.
+     * Time Complexity: O(p) where p is the number of dirty pages.
+     */
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        header.force();
+    }
+
+    /**
+     * Flushes the records and closes the file.
+     * Time Complexity: O(p) where p is the number of dirty pages.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /**
+     * Maps the given number of records, growing the file if needed. Full
+     * segments that are already mapped are kept; only the last, partly used
+     * segment and new segments are mapped again.
+     * Time Complexity: O(s) where s is the number of segments - The operating
+     * system pages records in lazily.
+     *
+     * @param records The number of records to map.
+     * @throws IOException if the file cannot be mapped.
+     */
+    private void map(long records) throws IOException {
+        int count = (int) ((records + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] mapped = Arrays.copyOf(segments, Math.max(count, 1));
+        for (int i = 0; i < mapped.length; i++) {
+            long segmentRecords = Math.min(SEGMENT_RECORDS, records - ((long) i << SEGMENT_SHIFT));
+            if (mapped[i] != null && mapped[i].capacity() == segmentRecords * RECORD_SIZE) {
+                continue;
+            }
+            if (mapped[i] != null) {
+                mapped[i].force();
+            }
+            mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_SIZE + ((long) i << SEGMENT_SHIFT) * RECORD_SIZE, segmentRecords * RECORD_SIZE);
+        }
+        segments = mapped;
+        capacity = records;
+    }
+
+    /**
+     * Returns the index of names to records, building it on first use.
+     * Time Complexity: O(1), or O(n * k) when it is built.
+     *
+     * @return The name index.
+     */
+    private Map<String, Integer> index() {
+        if (rowsByName == null) {
+            Map<String, Integer> index = new HashMap<>(Math.max(16, size * 4 / 3 + 1));
+            for (int row = 0; row < size; row++) {
+                index.put(nameKey(readName(row)), row);
+            }
+            rowsByName = index;
+        }
+        return rowsByName;
+    }
+
+    /**
+     * Returns the segment holding a record.
+     * Time Complexity: O(1)
+     *
+     * @param row The record index.
+     * @return The mapped segment.
+     */
+    private ByteBuffer segment(int row) {
+        return segments[row >>> SEGMENT_SHIFT];
+    }
+
+    /**
+     * Computes the byte offset of a record within its segment.
+     * Time Complexity: O(1)
+     *
+     * @param row The record index.
+     * @return The offset of the record in its segment.
+     */
+    private static int offset(int row) {
+        return (row & SEGMENT_MASK) * RECORD_SIZE;
+    }
+
+    /**
+     * Stores a new total value in the header.
+     * Time Complexity: O(1)
+     *
+     * @param total The total value in cents.
+     */
+    private void setValue(long total) {
+        valueInCents = total;
+        header.putLong(VALUE_OFFSET, total);
+    }
+
+    /**
+     * Reads the price stored in a record.
+     * Time Complexity: O(1)
+     *
+     * @param row The record index.
+     * @return The price.
+     */
+    private double readPrice(int row) {
+        return segment(row).getDouble(offset(row) + PRICE_OFFSET);
+    }
+
+    /**
+     * Reads the quantity stored in a record.
+     * Time Complexity: O(1)
+     *
+     * @param row The record index.
+     * @return The quantity.
+     */
+    private int readQuantity(int row) {
+        return segment(row).getInt(offset(row) + QUANTITY_OFFSET);
+    }
+
+    /**
+     * Writes a new price and quantity into a record, adjusting the total
+     * value first so an overflow leaves the record untouched.
+     * Time Complexity: O(1)
+     *
+     * @param row      The record index.
+     * @param price    The new price.
+     * @param quantity The new quantity.
+     * @throws ArithmeticException if the stock value would not fit in whole
+     *                             cents.
+     */
+    private void writeStock(int row, double price, int quantity) {
+        long oldValue = Inventory.valueInCents(readPrice(row), readQuantity(row));
+        setValue(Math.addExact(valueInCents - oldValue, Inventory.valueInCents(price, quantity)));
+        ByteBuffer segment = segment(row);
+        segment.putDouble(offset(row) + PRICE_OFFSET, price);
+        segment.putInt(offset(row) + QUANTITY_OFFSET, quantity);
+    }
+
+    /**
+     * Reads the name stored in a record.
+     * Time Complexity: O(k) where k is the length of the name.
+     *
+     * @param row The record index.
+     * @return The device name.
+     */
+    private String readName(int row) {
+        ByteBuffer segment = segment(row);
+        int base = offset(row);
+        byte[] bytes = new byte[segment.getShort(base + NAME_LENGTH_OFFSET)];
+        segment.get(base + NAME_OFFSET, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes an encoded name into a record.
+     * Time Complexity: O(k) where k is the length of the name.
+     *
+     * @param row       The record index.
+     * @param nameBytes The UTF-8 encoded name.
+     */
+    private void writeName(int row, byte[] nameBytes) {
+        ByteBuffer segment = segment(row);
+        int base = offset(row);
+        segment.putShort(base + NAME_LENGTH_OFFSET, (short) nameBytes.length);
+        segment.put(base + NAME_OFFSET, nameBytes);
+    }
+
+    /**
+     * Checks that a name fits in a record, so a device with it can be
+     * checkpointed.
+     * Time Complexity: O(k) where k is the length of the name.
+     *
+     * @param name The device name.
+     * @return true if the name is at most MAX_NAME_BYTES long in UTF-8.
+     */
+    static boolean fitsName(String name) {
+        // A char never takes more than 3 bytes, so short names need no encoding
+        return name.length() * 3 <= MAX_NAME_BYTES || name.getBytes(StandardCharsets.UTF_8).length <= MAX_NAME_BYTES;
+    }
+
+    /**
+     * Encodes a name as UTF-8, checking that it fits in a record.
+     * Time Complexity: O(k) where k is the length of the name.
+     *
+     * @param name The device name.
+     * @return The encoded name.
+     * @throws IllegalArgumentException if the name is too long.
+     */
+    private static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Device name '" + name + "' is longer than "
+                    + MAX_NAME_BYTES + " bytes.");
+        }
+        return bytes;
+    }
+
+    /**
+     * Normalizes a device name into the key used by the name index.
+     * Time Complexity: O(k) where k is the length of the name.
+     *
+     * @param deviceName The device name.
+     * @return The lower-case key for the name.
+     */
+    private static String nameKey(String deviceName) {
+        return deviceName.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A Device view that reads and writes one record of the mapped file. A
+     * listener attached to the view is told about changes made through it,
+     * like the listener of any other Device.
+     */
+    private final class RecordView implements Device {
+        private final int row;
+        private DeviceListener listener;
+
+        /**
+         * Constructs a view over the given record.
+         * Time Complexity: O(1)
+         *
+         * @param row The record index.
+         */
+        RecordView(int row) {
+            this.row = row;
+        }
+
+        /**
+         * Gets the category of the record.
+         * Time Complexity: O(1)
+         *
+         * @return The category display name.
+         */
+        @Override
+        public String getCategory() {
+            return CATEGORIES[segment(row).get(offset(row) + CATEGORY_OFFSET)].getDisplayName();
+        }
+
+        /**
+         * Gets the name of the record.
+         * Time Complexity: O(k) where k is the length of the name.
+         *
+         * @return The device name.
+         */
+        @Override
+        public String getName() {
+            return readName(row);
+        }
+
+        /**
+         * Gets the price of the record.
+         * Time Complexity: O(1)
+         *
+         * @return The device price.
+         */
+        @Override
+        public double getPrice() {
+            return readPrice(row);
+        }
+
+        /**
+         * Gets the quantity of the record.
+         * Time Complexity: O(1)
+         *
+         * @return The device quantity.
+         */
+        @Override
+        public int getQuantity() {
+            return readQuantity(row);
+        }
+
+        /**
+         * Sets the category of the record. The listener, if any, is told first.
+         * Time Complexity: O(1) plus the cost of the listener.
+         *
+         * @param category The new category display name.
+         * @throws IllegalArgumentException if the category is not allowed.
+         */
+        @Override
+        public void setCategory(String category) {
+            Category target = Category.fromDisplayName(category);
+            if (target == null) {
+                throw new IllegalArgumentException("Category '" + category + "' is not allowed.");
+            }
+            if (listener != null) {
+                listener.categoryChanging(this, category);
+            }
+            segment(row).put(offset(row) + CATEGORY_OFFSET, (byte) target.ordinal());
+        }
+
+        /**
+         * Renames the record and re-keys the name index. The listener, if any,
+         * is told first.
+         * Time Complexity: O(k) where k is the length of the name, plus the
+         * cost of the listener.
+         *
+         * @param name The new device name.
+         * @throws IllegalArgumentException if the name is too long or another
+         *                                  device already has it.
+         */
+        @Override
+        public void setName(String name) {
+            byte[] nameBytes = encodeName(name);
+            Map<String, Integer> index = index();
+            String oldKey = nameKey(readName(row));
+            String newKey = nameKey(name);
+            if (!oldKey.equals(newKey) && index.containsKey(newKey)) {
+                throw new IllegalArgumentException("A device with name '" + name + "' already exists.");
+            }
+            if (listener != null) {
+                listener.nameChanging(this, name);
+            }
+            if (!oldKey.equals(newKey)) {
+                index.remove(oldKey);
+                index.put(newKey, row);
+            }
+            writeName(row, nameBytes);
+        }
+
+        /**
+         * Sets the price of the record and updates the total value.
+         * Time Complexity: O(1) plus the cost of the listener.
+         *
+         * @param price The new price.
+         * @throws ArithmeticException if the stock value would not fit in
+         *                             whole cents.
+         */
+        @Override
+        public void setPrice(double price) {
+            changeStock(price, getQuantity());
+        }
+
+        /**
+         * Sets the quantity of the record and updates the total value.
+         * Time Complexity: O(1) plus the cost of the listener.
+         *
+         * @param quantity The new quantity.
+         * @throws ArithmeticException if the stock value would not fit in
+         *                             whole cents.
+         */
+        @Override
+        public void setQuantity(int quantity) {
+            changeStock(getPrice(), quantity);
+        }
+
+        /**
+         * Attaches the listener notified of changes made through this view.
+         * Time Complexity: O(1)
+         *
+         * @param listener The listener to notify, or null to detach.
+         */
+        @Override
+        public void setListener(DeviceListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Asks the listener, if any, then writes the new stock and reports it.
+         * Time Complexity: O(1) plus the cost of the listener.
+         *
+         * @param price    The new price.
+         * @param quantity The new quantity.
+         * @throws ArithmeticException if the stock value would not fit in
+         *                             whole cents.
+         */
+        private void changeStock(double price, int quantity) {
+            double oldPrice = getPrice();
+            int oldQuantity = getQuantity();
+            if (listener != null) {
+                listener.stockChanging(this, price, quantity);
+            }
+            writeStock(row, price, quantity);
+            if (listener != null) {
+                listener.stockChanged(this, oldPrice, oldQuantity, price, quantity);
+            }
+        }
+    }
+}
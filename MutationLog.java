@@ -0,0 +1,501 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * The MutationLog class is a write-ahead log of inventory mutations. Each
+ * add, remove, update and restock is appended as a compact binary record
+ * framed by its length and a CRC32 checksum before the Inventory applies it.
+ * Replaying the log into an empty Inventory rebuilds the state it had when
+ * the last record was written; a torn or corrupt tail left by a crash, or a
+ * record this version cannot decode, is detected and cut off.
+ * Every record is written through to the operating system as it is appended,
+ * so a crash of the process loses nothing. The SyncPolicy only decides when
+ * the file is forced to the storage device, which is what a power failure
+ * would otherwise lose.
+ * The file starts with a header holding a generation number. A checkpoint of
+ * the inventory resets the log to an empty one of the checkpoint's
+ * generation, so the log only holds the mutations made since; a log whose
+ * generation is older than the checkpoint is already part of it.
+ * Appending is synchronized, so one log can be shared by concurrent writers.
+ */
+public class MutationLog implements Closeable {
+
+    /**
+     * Decides when appended records are forced to the storage device.
+     */
+    public enum SyncPolicy {
+        /** Fsync after every record. Nothing is lost on a power failure. */
+        EVERY_RECORD,
+        /**
+         * Fsync once groupSize records are unsynced, or once the oldest of
+         * them has waited maxDelayMillis, whichever comes first.
+         */
+        GROUP_COMMIT,
+        /** Leave flushing to the operating system until sync() or close(). */
+        OS_DEFAULT
+    }
+
+    /** The delay after which GROUP_COMMIT forces an incomplete group. */
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 20;
+
+    private static final byte OP_ADD = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_UPDATE = 3;
+    private static final byte OP_RESTOCK = 4;
+
+    private static final int MAGIC = 0x494C4F47; // "ILOG"
+    private static final int HEADER_SIZE = 16;
+    private static final int GENERATION_OFFSET = 8;
+
+    private static final int FRAME_HEADER_SIZE = 8;
+    // A name of up to 65535 UTF-8 bytes plus the other fields of a record
+    private static final int MAX_PAYLOAD_SIZE = 70 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    private final SyncPolicy policy;
+    private final int groupSize;
+    private final ByteBuffer frame;
+    private final ByteArrayOutputStream payloadBytes;
+    private final DataOutputStream payload;
+    private final CRC32 crc;
+    private final ScheduledExecutorService flusher;
+    private final FileChannel channel;
+    private long generation;
+    private long recordsStart;
+    private int unsyncedRecords;
+    private IOException flushFailure;
+
+    /**
+     * Opens the log stored in the given file, creating it if needed, with the
+     * default delay for incomplete groups. Call replay before appending, so a
+     * torn tail is removed first.
+     * Time Complexity: O(1)
+     *
+     * @param path      The log file.
+     * @param policy    When records are forced to the storage device.
+     * @param groupSize The number of records per group commit; ignored by the
+     *                  other policies.
+     * @throws IOException if the file cannot be opened.
+     */
+    public MutationLog(Path path, SyncPolicy policy, int groupSize) throws IOException {
+        this(path, policy, groupSize, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * Opens the log stored in the given file, creating it with generation 0
+     * if needed. Call replay or reset before appending, so a torn tail is
+     * removed first. A log written before the header was introduced is read
+     * as generation 0.
+     * Time Complexity: O(1)
+     *
+     * @param path           The log file.
+     * @param policy         When records are forced to the storage device.
+     * @param groupSize      The number of records per group commit; ignored by
+     *                       the other policies.
+     * @param maxDelayMillis How long an incomplete group may stay unsynced;
+     *                       ignored by the other policies.
+     * @throws IOException if the file cannot be opened.
+     */
+    public MutationLog(Path path, SyncPolicy policy, int groupSize, long maxDelayMillis) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.policy = policy;
+        this.groupSize = Math.max(groupSize, 1);
+        this.frame = ByteBuffer.allocateDirect(FRAME_HEADER_SIZE + MAX_PAYLOAD_SIZE);
+        this.payloadBytes = new ByteArrayOutputStream(256);
+        this.payload = new DataOutputStream(payloadBytes);
+        this.crc = new CRC32();
+        try {
+            readHeader();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (policy == SyncPolicy.GROUP_COMMIT) {
+            long delay = Math.max(maxDelayMillis, 1);
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mutation-log-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flusher.scheduleWithFixedDelay(this::flushGroup, delay, delay, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Replays every valid record into the inventory, then truncates the file
+     * after the last valid record so new records are appended after it.
+     * Replay stops at the first record that is torn, fails its checksum or
+     * cannot be decoded.
+     * Time Complexity: O(r log n) where r is the number of records and n the
+     * number of devices.
+     *
+     * @param inventory The inventory to rebuild, normally empty.
+     * @return The number of records replayed.
+     * @throws IOException if the file cannot be read or truncated.
+     */
+    public synchronized int replay(Inventory inventory) throws IOException {
+        channel.position(recordsStart);
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+        long validEnd = recordsStart;
+        int replayed = 0;
+        byte[] record = new byte[256];
+        while (true) {
+            int length;
+            int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (length < 0 || length > MAX_PAYLOAD_SIZE) {
+                    break;
+                }
+                if (record.length < length) {
+                    record = new byte[length];
+                }
+                in.readFully(record, 0, length);
+            } catch (EOFException e) {
+                break; // Clean end of the log, or a record torn by a crash
+            }
+            crc.reset();
+            crc.update(record, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            try {
+                apply(inventory, new DataInputStream(new ByteArrayInputStream(record, 0, length)));
+            } catch (IOException e) {
+                break; // Unknown or malformed record; nothing after it can be trusted
+            }
+            validEnd += FRAME_HEADER_SIZE + length;
+            replayed++;
+        }
+        channel.truncate(validEnd);
+        channel.position(validEnd);
+        return replayed;
+    }
+
+    /**
+     * Appends an add record.
+     * Time Complexity: O(k) where k is the length of the name, plus an fsync
+     * when the policy asks for one.
+     *
+     * @param device The device to be added.
+     * @throws UncheckedIOException if the record cannot be written.
+     */
+    public synchronized void logAdd(Device device) {
+        try {
+            payload.writeByte(OP_ADD);
+            payload.writeByte(Category.fromDisplayName(device.getCategory()).ordinal());
+            payload.writeUTF(device.getName());
+            payload.writeDouble(device.getPrice());
+            payload.writeInt(device.getQuantity());
+            append();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            payloadBytes.reset(); // A record that failed half-written must not prefix the next one
+        }
+    }
+
+    /**
+     * Appends a remove record.
+     * Time Complexity: O(k) where k is the length of the name, plus an fsync
+     * when the policy asks for one.
+     *
+     * @param deviceName The name of the device to be removed.
+     * @throws UncheckedIOException if the record cannot be written.
+     */
+    public synchronized void logRemove(String deviceName) {
+        try {
+            payload.writeByte(OP_REMOVE);
+            payload.writeUTF(deviceName);
+            append();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            payloadBytes.reset();
+        }
+    }
+
+    /**
+     * Appends an update record.
+     * Time Complexity: O(k) where k is the length of the name, plus an fsync
+     * when the policy asks for one.
+     *
+     * @param deviceName  The name of the device to be updated.
+     * @param newPrice    The price passed to updateDeviceDetails.
+     * @param newQuantity The quantity passed to updateDeviceDetails.
+     * @throws UncheckedIOException if the record cannot be written.
+     */
+    public synchronized void logUpdate(String deviceName, double newPrice, int newQuantity) {
+        try {
+            payload.writeByte(OP_UPDATE);
+            payload.writeUTF(deviceName);
+            payload.writeDouble(newPrice);
+            payload.writeInt(newQuantity);
+            append();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            payloadBytes.reset();
+        }
+    }
+
+    /**
+     * Appends a restock record.
+     * Time Complexity: O(k) where k is the length of the name, plus an fsync
+     * when the policy asks for one.
+     *
+     * @param deviceName     The name of the device to be restocked.
+     * @param quantityChange The amount of quantity to add or remove.
+     * @param addStock       True if stock is added, false if removed.
+     * @throws UncheckedIOException if the record cannot be written.
+     */
+    public synchronized void logRestock(String deviceName, int quantityChange, boolean addStock) {
+        try {
+            payload.writeByte(OP_RESTOCK);
+            payload.writeUTF(deviceName);
+            payload.writeInt(quantityChange);
+            payload.writeBoolean(addStock);
+            append();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            payloadBytes.reset();
+        }
+    }
+
+    /**
+     * Gets the generation stored in the header.
+     * Time Complexity: O(1)
+     *
+     * @return The generation, 0 for a new log.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Drops every record and starts an empty log of the given generation,
+     * once a checkpoint of that generation holds their effects. The header is
+     * forced before the method returns.
+     * Time Complexity: O(1), plus an fsync.
+     *
+     * @param generation The generation of the checkpoint.
+     * @throws IOException if the log cannot be reset.
+     */
+    public synchronized void reset(long generation) throws IOException {
+        channel.truncate(0);
+        writeHeader(generation);
+        sync();
+    }
+
+    /**
+     * Forces every record to the storage device, whatever the policy.
+     * Time Complexity: O(1), plus an fsync.
+     *
+     * @throws IOException if the records cannot be forced.
+     */
+    public synchronized void sync() throws IOException {
+        channel.force(false);
+        unsyncedRecords = 0;
+    }
+
+    /**
+     * Stops the flusher, syncs the records and closes the file.
+     * Time Complexity: O(1), plus an fsync.
+     *
+     * @throws IOException if the records cannot be forced or the file closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        synchronized (this) {
+            try {
+                sync();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the header, writing one if the file is new, and moves to the end
+     * of the file.
+     * Time Complexity: O(1)
+     *
+     * @throws IOException if the header cannot be read or written.
+     */
+    private void readHeader() throws IOException {
+        if (channel.size() == 0) {
+            writeHeader(0);
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // Read until the header is complete or the file ends
+        }
+        if (!header.hasRemaining() && header.getInt(0) == MAGIC) {
+            generation = header.getLong(GENERATION_OFFSET);
+            recordsStart = HEADER_SIZE;
+        } else {
+            generation = 0; // Written before the header, records start at once
+            recordsStart = 0;
+        }
+        channel.position(channel.size());
+    }
+
+    /**
+     * Writes the header at the start of an empty file.
+     * Time Complexity: O(1)
+     *
+     * @param generation The generation to store.
+     * @throws IOException if the header cannot be written.
+     */
+    private void writeHeader(long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(0).putLong(generation).flip();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        this.generation = generation;
+        this.recordsStart = HEADER_SIZE;
+        unsyncedRecords = 0;
+    }
+
+    /**
+     * Writes the payload written so far through to the log, forcing it when
+     * the policy asks for it.
+     * Time Complexity: O(k) where k is the payload size, plus an fsync when
+     * the group is complete.
+     *
+     * @throws IOException if the record cannot be written, or an earlier
+     *                     timed flush failed.
+     */
+    private void append() throws IOException {
+        if (flushFailure != null) {
+            throw new IOException("An earlier flush of the mutation log failed.", flushFailure);
+        }
+        write();
+        unsyncedRecords++;
+        if (policy == SyncPolicy.EVERY_RECORD
+                || (policy == SyncPolicy.GROUP_COMMIT && unsyncedRecords >= groupSize)) {
+            sync();
+        }
+    }
+
+    /**
+     * Frames the payload written so far and writes it to the file with a
+     * single write.
+     * Time Complexity: O(k) where k is the payload size.
+     *
+     * @throws IOException if the record cannot be written.
+     */
+    private void write() throws IOException {
+        payload.flush();
+        int length = payloadBytes.size();
+        byte[] bytes = payloadBytes.toByteArray();
+        if (length > MAX_PAYLOAD_SIZE) {
+            throw new IOException("The mutation log record of " + length + " bytes is too large.");
+        }
+        crc.reset();
+        crc.update(bytes, 0, length);
+        frame.clear();
+        frame.putInt(length);
+        frame.putInt((int) crc.getValue());
+        frame.put(bytes, 0, length);
+        frame.flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    /**
+     * Forces an incomplete group once it has waited long enough; run by the
+     * flusher of GROUP_COMMIT. A failure is remembered and reported by the
+     * next append, as the flusher has no caller to report it to.
+     * Time Complexity: O(1), plus an fsync if records are unsynced.
+     */
+    private synchronized void flushGroup() {
+        if (unsyncedRecords == 0 || !channel.isOpen()) {
+            return;
+        }
+        try {
+            sync();
+        } catch (IOException e) {
+            flushFailure = e;
+        }
+    }
+
+    /**
+     * Applies one decoded record to the inventory.
+     * Time Complexity: O(log n)
+     *
+     * @param inventory The inventory being rebuilt.
+     * @param in        The record payload.
+     * @throws IOException if the record type is unknown or the payload is
+     *                     malformed.
+     */
+    private static void apply(Inventory inventory, DataInputStream in) throws IOException {
+        byte op = in.readByte();
+        switch (op) {
+            case OP_ADD: {
+                int ordinal = in.readByte();
+                if (ordinal < 0 || ordinal >= CATEGORIES.length) {
+                    throw new IOException("Unknown category " + ordinal + " in the mutation log.");
+                }
+                String name = in.readUTF();
+                double price = in.readDouble();
+                int quantity = in.readInt();
+                if (quantity < 0) {
+                    throw new IOException("Negative quantity " + quantity + " in the mutation log.");
+                }
+                inventory.applyAdd(CATEGORIES[ordinal].createDevice(name, price, quantity));
+                break;
+            }
+            case OP_REMOVE:
+                inventory.applyRemove(in.readUTF());
+                break;
+            case OP_UPDATE: {
+                String name = in.readUTF();
+                double newPrice = in.readDouble();
+                int newQuantity = in.readInt();
+                inventory.applyUpdate(name, newPrice, newQuantity);
+                break;
+            }
+            case OP_RESTOCK: {
+                String name = in.readUTF();
+                int quantityChange = in.readInt();
+                boolean addStock = in.readBoolean();
+                inventory.applyRestock(name, quantityChange, addStock);
+                break;
+            }
+            default:
+                throw new IOException("Unknown mutation log record type " + op + ".");
+        }
+    }
+}
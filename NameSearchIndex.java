@@ -0,0 +1,220 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The NameSearchIndex class finds devices whose name contains a given text,
+ * ignoring case, without scanning every name. Each normalized name is split
+ * into its bigrams and trigrams, the overlapping runs of two and three
+ * characters, and the device is added to the posting list of every distinct
+ * gram. Every match of a query must contain all of the query's trigrams, so
+ * only the devices of its rarest trigram are candidates; a two-character
+ * query is itself a bigram and its posting list is the exact answer.
+ * Single characters are not indexed; the caller answers them another way.
+ * The index is updated incrementally as devices are added, removed and
+ * renamed. Every device remembers its position in each of its posting lists,
+ * so it is removed by moving the last device of the list into its slot,
+ * without searching the list. Name keys must be unique, as they are in an
+ * Inventory. It is not thread-safe.
+ */
+class NameSearchIndex {
+
+    /** The length of the shortest query the index can answer. */
+    static final int MIN_QUERY_LENGTH = 2;
+    private static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, List<Entry>> postings;
+    private final Map<String, Entry> entries;
+
+    /**
+     * Constructs an empty index.
+     * Time Complexity: O(1)
+     */
+    NameSearchIndex() {
+        postings = new HashMap<>();
+        entries = new HashMap<>();
+    }
+
+    /**
+     * Adds a device under the grams of its name key.
+     * Time Complexity: O(k log k) where k is the length of the name.
+     *
+     * @param device  The device.
+     * @param nameKey The normalized name of the device, not yet in the index.
+     */
+    void add(Device device, String nameKey) {
+        long[] grams = distinctGrams(nameKey);
+        Entry entry = new Entry(device, grams);
+        for (int i = 0; i < grams.length; i++) {
+            List<Entry> posting = postings.computeIfAbsent(grams[i], g -> new ArrayList<>(2));
+            entry.positions[i] = posting.size();
+            posting.add(entry);
+        }
+        entries.put(nameKey, entry);
+    }
+
+    /**
+     * Removes a device from the grams of its name key. Each posting list
+     * fills the freed slot with its last device, whose position is updated.
+     * Time Complexity: O(k log k) where k is the length of the name,
+     * whatever the length of the posting lists.
+     *
+     * @param device  The device.
+     * @param nameKey The normalized name the device was added under.
+     */
+    void remove(Device device, String nameKey) {
+        Entry entry = entries.get(nameKey);
+        if (entry == null || entry.device != device) {
+            return;
+        }
+        entries.remove(nameKey);
+        long[] grams = entry.grams;
+        for (int i = 0; i < grams.length; i++) {
+            List<Entry> posting = postings.get(grams[i]);
+            int slot = entry.positions[i];
+            int last = posting.size() - 1;
+            if (slot != last) {
+                Entry moved = posting.get(last);
+                posting.set(slot, moved);
+                moved.positions[Arrays.binarySearch(moved.grams, grams[i])] = slot;
+            }
+            posting.remove(last);
+            if (posting.isEmpty()) {
+                postings.remove(grams[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the candidates for a query: the devices whose name contains the
+     * query's rarest gram. For a query of two characters, the candidates are
+     * exactly the matches; for longer queries they must still be checked
+     * against the whole query.
+     * Time Complexity: O(q) where q is the length of the query.
+     *
+     * @param query The normalized query, at least MIN_QUERY_LENGTH characters
+     *              long.
+     * @return A read-only list of the candidates, in no particular order.
+     */
+    List<Device> candidates(String query) {
+        if (query.length() < GRAM_LENGTH) {
+            return readOnly(postings.get(bigram(query, 0)));
+        }
+        List<Entry> rarest = null;
+        for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+            List<Entry> posting = postings.get(trigram(query, i));
+            if (posting == null) {
+                return Collections.emptyList(); // A trigram no name has
+            }
+            if (rarest == null || posting.size() < rarest.size()) {
+                rarest = posting;
+            }
+        }
+        return readOnly(rarest);
+    }
+
+    /**
+     * Wraps a posting list for callers.
+     * Time Complexity: O(1)
+     *
+     * @param posting The posting list, or null if the gram is not indexed.
+     * @return A read-only view of its devices, or an empty list.
+     */
+    private static List<Device> readOnly(List<Entry> posting) {
+        if (posting == null) {
+            return Collections.emptyList();
+        }
+        return new AbstractList<Device>() {
+            @Override
+            public Device get(int index) {
+                return posting.get(index).device;
+            }
+
+            @Override
+            public int size() {
+                return posting.size();
+            }
+        };
+    }
+
+    /**
+     * Lists the distinct bigrams and trigrams of a name key, each packed into
+     * a long.
+     * Time Complexity: O(k log k) where k is the length of the name.
+     *
+     * @param nameKey The normalized name.
+     * @return The distinct grams, sorted.
+     */
+    private static long[] distinctGrams(String nameKey) {
+        int bigrams = Math.max(nameKey.length() - 1, 0);
+        int trigrams = Math.max(nameKey.length() - 2, 0);
+        int count = bigrams + trigrams;
+        long[] grams = new long[count];
+        for (int i = 0; i < bigrams; i++) {
+            grams[i] = bigram(nameKey, i);
+        }
+        for (int i = 0; i < trigrams; i++) {
+            grams[bigrams + i] = trigram(nameKey, i);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    /**
+     * Packs the two characters starting at an offset into a long. The top
+     * bit keeps bigrams apart from trigrams.
+     * Time Complexity: O(1)
+     *
+     * @param text   The text.
+     * @param offset The offset of the first character.
+     * @return The packed bigram.
+     */
+    private static long bigram(String text, int offset) {
+        return Long.MIN_VALUE | ((long) text.charAt(offset) << 16) | text.charAt(offset + 1);
+    }
+
+    /**
+     * Packs the three characters starting at an offset into a long.
+     * Time Complexity: O(1)
+     *
+     * @param text   The text.
+     * @param offset The offset of the first character.
+     * @return The packed trigram.
+     */
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    /**
+     * A device with its grams, sorted, and its position in the posting list
+     * of each gram.
+     */
+    private static final class Entry {
+        private final Device device;
+        private final long[] grams;
+        private final int[] positions;
+
+        /**
+         * Constructs an entry whose positions are filled in by the caller.
+         * Time Complexity: O(g) where g is the number of grams.
+         *
+         * @param device The device.
+         * @param grams  The distinct grams of its name key, sorted.
+         */
+        Entry(Device device, long[] grams) {
+            this.device = device;
+            this.grams = grams;
+            this.positions = new int[grams.length];
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * The OperationLatency class holds the latency histogram of one kind of
+ * inventory operation and publishes it as an OperationLatencyMBean.
+ * Recording is lock-free and safe from any number of threads.
+ */
+public class OperationLatency implements OperationLatencyMBean {
+
+    private final LatencyHistogram histogram;
+
+    /**
+     * Constructs an empty recorder.
+     * Time Complexity: O(1)
+     */
+    public OperationLatency() {
+        histogram = new LatencyHistogram();
+    }
+
+    /**
+     * Records the latency of one operation.
+     * Time Complexity: O(1)
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        histogram.record(nanos);
+    }
+
+    /**
+     * Gets the number of operations recorded since the last reset.
+     * Time Complexity: O(1) - The number of buckets is fixed.
+     *
+     * @return The count.
+     */
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    /**
+     * Gets the median latency.
+     * Time Complexity: O(1) - The number of buckets is fixed.
+     *
+     * @return The 50th percentile in microseconds.
+     */
+    @Override
+    public double getP50Micros() {
+        return histogram.getPercentile(50) / 1e3;
+    }
+
+    /**
+     * Gets the latency 99% of the operations stay within.
+     * Time Complexity: O(1) - The number of buckets is fixed.
+     *
+     * @return The 99th percentile in microseconds.
+     */
+    @Override
+    public double getP99Micros() {
+        return histogram.getPercentile(99) / 1e3;
+    }
+
+    /**
+     * Gets the latency 99.9% of the operations stay within.
+     * Time Complexity: O(1) - The number of buckets is fixed.
+     *
+     * @return The 99.9th percentile in microseconds.
+     */
+    @Override
+    public double getP999Micros() {
+        return histogram.getPercentile(99.9) / 1e3;
+    }
+
+    /**
+     * Gets the highest latency recorded since the last reset.
+     * Time Complexity: O(1)
+     *
+     * @return The maximum in microseconds.
+     */
+    @Override
+    public double getMaxMicros() {
+        return histogram.getMax() / 1e3;
+    }
+
+    /**
+     * Clears the recorded latencies and the count.
+     * Time Complexity: O(1) - The number of buckets is fixed.
+     */
+    @Override
+    public void reset() {
+        histogram.reset();
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * The OperationLatencyMBean interface is the management view of the latency
+ * of one kind of inventory operation, as shown by JConsole or any other JMX
+ * client. Latencies are in microseconds and percentiles are accurate to
+ * about 3%.
+ */
+public interface OperationLatencyMBean {
+
+    /**
+     * Gets the number of operations recorded since the last reset.
+     *
+     * @return The count.
+     */
+    long getCount();
+
+    /**
+     * Gets the median latency.
+     *
+     * @return The 50th percentile in microseconds.
+     */
+    double getP50Micros();
+
+    /**
+     * Gets the latency 99% of the operations stay within.
+     *
+     * @return The 99th percentile in microseconds.
+     */
+    double getP99Micros();
+
+    /**
+     * Gets the latency 99.9% of the operations stay within.
+     *
+     * @return The 99.9th percentile in microseconds.
+     */
+    double getP999Micros();
+
+    /**
+     * Gets the highest latency recorded since the last reset.
+     *
+     * @return The maximum in microseconds.
+     */
+    double getMaxMicros();
+
+    /**
+     * Clears the recorded latencies and the count.
+     */
+    void reset();
+}
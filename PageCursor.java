@@ -0,0 +1,139 @@
+/**
+ * The PageCursor class marks a position in a paginated listing of devices.
+ * A cursor holds the sort order, the optional category filter and the sort
+ * key of the last device already returned, not an index, so pages stay
+ * correct while devices are added or removed between two requests: the next
+ * page simply continues after that key.
+ * Instances are immutable. Start a listing with first, then pass the cursor
+ * of each page to Inventory.getPage to fetch the following one.
+ */
+public final class PageCursor {
+
+    /**
+     * The orders in which devices can be paged.
+     */
+    public enum Order {
+        /** By name, ignoring case. */
+        NAME,
+        /** By ascending price, with ties broken by name. */
+        PRICE
+    }
+
+    private final Order order;
+    private final Category category;
+    private final boolean started;
+    private final double lastPrice;
+    private final String lastNameKey;
+
+    /**
+     * Constructs a cursor.
+     * Time Complexity: O(1)
+     *
+     * @param order       The sort order.
+     * @param category    The category to list, or null for all categories.
+     * @param started     False for the start of the listing.
+     * @param lastPrice   The price of the last device returned.
+     * @param lastNameKey The normalized name of the last device returned.
+     */
+    private PageCursor(Order order, Category category, boolean started, double lastPrice, String lastNameKey) {
+        this.order = order;
+        this.category = category;
+        this.started = started;
+        this.lastPrice = lastPrice;
+        this.lastNameKey = lastNameKey;
+    }
+
+    /**
+     * Creates a cursor at the start of a listing.
+     * Time Complexity: O(1)
+     *
+     * @param order    The sort order.
+     * @param category The category to list, or null for all categories.
+     * @return The cursor of the first page.
+     */
+    public static PageCursor first(Order order, Category category) {
+        if (order == null) {
+            throw new IllegalArgumentException("The order must not be null.");
+        }
+        return new PageCursor(order, category, false, 0, null);
+    }
+
+    /**
+     * Recreates a cursor from the sort key of the last device returned, as
+     * sent back by a client of the PAGE command.
+     * Time Complexity: O(k) where k is the length of the name.
+     *
+     * @param order     The sort order.
+     * @param category  The category to list, or null for all categories.
+     * @param lastPrice The price of the last device returned.
+     * @param lastName  The name, or normalized name, of the last device returned.
+     * @return The cursor of the following page.
+     */
+    static PageCursor resume(Order order, Category category, double lastPrice, String lastName) {
+        if (order == null) {
+            throw new IllegalArgumentException("The order must not be null.");
+        }
+        return new PageCursor(order, category, true, lastPrice, Inventory.nameKey(lastName));
+    }
+
+    /**
+     * Creates the cursor positioned after the given device.
+     * Time Complexity: O(k) where k is the length of the device name.
+     *
+     * @param device The last device of a page.
+     * @return The cursor of the following page.
+     */
+    PageCursor after(Device device) {
+        return new PageCursor(order, category, true, device.getPrice(), Inventory.nameKey(device.getName()));
+    }
+
+    /**
+     * Gets the sort order.
+     * Time Complexity: O(1)
+     *
+     * @return The order.
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Gets the category filter.
+     * Time Complexity: O(1)
+     *
+     * @return The category listed, or null for all categories.
+     */
+    public Category getCategory() {
+        return category;
+    }
+
+    /**
+     * Tells whether this cursor is at the start of the listing.
+     * Time Complexity: O(1)
+     *
+     * @return true if no page has been returned yet.
+     */
+    public boolean isFirst() {
+        return !started;
+    }
+
+    /**
+     * Gets the price of the last device returned.
+     * Time Complexity: O(1)
+     *
+     * @return The price; meaningless for the first page.
+     */
+    double getLastPrice() {
+        return lastPrice;
+    }
+
+    /**
+     * Gets the normalized name of the last device returned.
+     * Time Complexity: O(1)
+     *
+     * @return The name key, or null for the first page.
+     */
+    String getLastNameKey() {
+        return lastNameKey;
+    }
+}
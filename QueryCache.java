@@ -0,0 +1,104 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The QueryCache class keeps the last result of one read query together with
+ * the version of the data it was computed from. The owner bumps the version
+ * on every mutation the query depends on; a call at an unchanged version is
+ * answered from the cache, any other call recomputes the result.
+ * Results are shared between callers, so they must be immutable. Concurrent
+ * readers may both recompute after a change, but a result is never served
+ * for a version newer than the one read before computing it. Hits and misses
+ * are counted for monitoring.
+ *
+ * @param <T> The type of the cached result.
+ */
+final class QueryCache<T> {
+
+    private final AtomicLong version;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private volatile Entry<T> entry;
+
+    /**
+     * Constructs an empty cache.
+     * Time Complexity: O(1)
+     */
+    QueryCache() {
+        version = new AtomicLong();
+        hits = new LongAdder();
+        misses = new LongAdder();
+    }
+
+    /**
+     * Marks the cached result as stale.
+     * Time Complexity: O(1)
+     */
+    void invalidate() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Returns the cached result if it is current, otherwise computes, caches
+     * and returns a new one.
+     * Time Complexity: O(1) on a hit, the cost of the query on a miss.
+     *
+     * @param query Computes the result from the current data.
+     * @return The result of the query.
+     */
+    T get(Supplier<T> query) {
+        long current = version.get();
+        Entry<T> cached = entry;
+        if (cached != null && cached.version == current) {
+            hits.increment();
+            return cached.value;
+        }
+        misses.increment();
+        T value = query.get();
+        entry = new Entry<>(current, value);
+        return value;
+    }
+
+    /**
+     * Gets the number of calls answered from the cache.
+     * Time Complexity: O(1)
+     *
+     * @return The hit count.
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of calls that had to compute the result.
+     * Time Complexity: O(1)
+     *
+     * @return The miss count.
+     */
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * A result and the version it was computed at.
+     *
+     * @param <T> The type of the result.
+     */
+    private static final class Entry<T> {
+        private final long version;
+        private final T value;
+
+        /**
+         * Constructs an entry.
+         * Time Complexity: O(1)
+         *
+         * @param version The version the result was computed at.
+         * @param value   The result.
+         */
+        Entry(long version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
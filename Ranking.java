@@ -0,0 +1,187 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The Ranking enum lists the orders in which Inventory.findTopDevices can rank
+ * devices: by price, by quantity in stock, or by stock value (price in whole
+ * cents times quantity). Ascending rankings break ties by name, ignoring case;
+ * descending rankings are their exact reverse, ties included.
+ */
+public enum Ranking {
+    /** Lowest price first. */
+    CHEAPEST(false),
+    /** Highest price first. */
+    MOST_EXPENSIVE(true),
+    /** Lowest quantity first. */
+    LOWEST_STOCK(false),
+    /** Highest quantity first. */
+    HIGHEST_STOCK(true),
+    /** Lowest stock value first. */
+    LEAST_VALUABLE(false),
+    /** Highest stock value first. */
+    MOST_VALUABLE(true);
+
+    private final boolean descending;
+
+    /**
+     * Constructs a ranking.
+     * Time Complexity: O(1)
+     *
+     * @param descending True if higher values rank first.
+     */
+    Ranking(boolean descending) {
+        this.descending = descending;
+    }
+
+    /**
+     * Tells whether higher values rank first.
+     * Time Complexity: O(1)
+     *
+     * @return true for the descending rankings.
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Tells whether this ranking follows the price index of an Inventory.
+     * Time Complexity: O(1)
+     *
+     * @return true for CHEAPEST and MOST_EXPENSIVE.
+     */
+    boolean isByPrice() {
+        return this == CHEAPEST || this == MOST_EXPENSIVE;
+    }
+
+    /**
+     * Selects the k best ranked devices with a bounded heap, so the candidates
+     * are never sorted as a whole. The ranked value of each device is read
+     * once, so devices changing during the selection cannot break the order.
+     * The heap is sized for at most as many devices as there are candidates,
+     * so a huge k costs no more memory than the candidates themselves.
+     * Time Complexity: O(n log k) where n is the number of candidates.
+     *
+     * @param candidates The devices to rank.
+     * @param k          The maximum number of devices to return.
+     * @return The best ranked devices, best first.
+     * @throws IllegalArgumentException if k is less than 1.
+     */
+    List<Device> select(Collection<? extends Device> candidates, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1: " + k);
+        }
+        k = Math.min(k, candidates.size());
+        if (k == 0) {
+            return new ArrayList<>();
+        }
+        // The heap keeps the worst of the best k on top, to be evicted first
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(k, Collections.reverseOrder());
+        for (Device device : candidates) {
+            double metric = metricOf(device);
+            if (heap.size() == k) {
+                Candidate worst = heap.peek();
+                int order = compareMetric(metric, worst.metric);
+                if (order > 0 || (order == 0 && compareName(Inventory.nameKey(device.getName()), worst.nameKey) >= 0)) {
+                    continue; // Cheap rejection without allocating
+                }
+                heap.poll();
+            }
+            heap.add(new Candidate(device, metric, Inventory.nameKey(device.getName())));
+        }
+
+        List<Candidate> ranked = new ArrayList<>(heap);
+        Collections.sort(ranked);
+        List<Device> devices = new ArrayList<>(ranked.size());
+        for (Candidate candidate : ranked) {
+            devices.add(candidate.device);
+        }
+        return devices;
+    }
+
+    /**
+     * Reads the value this ranking orders by.
+     * Time Complexity: O(1)
+     *
+     * @param device The device.
+     * @return The price, quantity or stock value of the device.
+     */
+    private double metricOf(Device device) {
+        switch (this) {
+            case CHEAPEST:
+            case MOST_EXPENSIVE:
+                return device.getPrice();
+            case LOWEST_STOCK:
+            case HIGHEST_STOCK:
+                return device.getQuantity();
+            case LEAST_VALUABLE:
+            case MOST_VALUABLE:
+            default:
+                return Math.round(device.getPrice() * 100) * (double) device.getQuantity();
+        }
+    }
+
+    /**
+     * Compares two values in the direction of this ranking.
+     * Time Complexity: O(1)
+     *
+     * @param a The first value.
+     * @param b The second value.
+     * @return A negative value if a ranks first.
+     */
+    private int compareMetric(double a, double b) {
+        int order = Double.compare(a, b);
+        return descending ? -order : order;
+    }
+
+    /**
+     * Compares two name keys in the direction of this ranking.
+     * Time Complexity: O(k) where k is the length of the shorter name.
+     *
+     * @param a The first name key.
+     * @param b The second name key.
+     * @return A negative value if a ranks first.
+     */
+    private int compareName(String a, String b) {
+        int order = a.compareTo(b);
+        return descending ? -order : order;
+    }
+
+    /**
+     * A device with the snapshot of its ranked value, ordered best first.
+     */
+    private final class Candidate implements Comparable<Candidate> {
+        private final Device device;
+        private final double metric;
+        private final String nameKey;
+
+        /**
+         * Constructs a candidate.
+         * Time Complexity: O(1)
+         *
+         * @param device  The device.
+         * @param metric  The ranked value of the device.
+         * @param nameKey The normalized name of the device.
+         */
+        Candidate(Device device, double metric, String nameKey) {
+            this.device = device;
+            this.metric = metric;
+            this.nameKey = nameKey;
+        }
+
+        /**
+         * Orders candidates by rank, best first.
+         * Time Complexity: O(k) where k is the length of the shorter name.
+         *
+         * @param other The candidate to compare with.
+         * @return A negative value if this candidate ranks first.
+         */
+        @Override
+        public int compareTo(Candidate other) {
+            int order = compareMetric(metric, other.metric);
+            return order != 0 ? order : compareName(nameKey, other.nameKey);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * The ReservableDevice interface extends Device with stock reservations, so
+ * units can be held for a checkout while they are still counted in stock.
+ * The Inventory only holds ReservableDevices, so every stock operation it
+ * offers works on every device it returns; read-only views such as snapshot
+ * rows implement the plain Device interface.
+ */
+public interface ReservableDevice extends Device {
+
+    /**
+     * Retrieves the number of units reserved and not yet committed or released.
+     *
+     * @return The reserved quantity.
+     */
+    int getReservedQuantity();
+
+    /**
+     * Retrieves the number of units that can still be reserved or removed.
+     *
+     * @return The quantity minus the reserved units.
+     */
+    int getAvailableQuantity();
+
+    /**
+     * Atomically adds a delta to the quantity, refusing to go below the
+     * reserved units.
+     *
+     * @param delta The units to add, negative to remove.
+     * @return true if the quantity was changed, false if too few units are
+     *         available or the quantity would overflow.
+     */
+    boolean adjustQuantity(int delta);
+
+    /**
+     * Reserves units if that many are available, e.g. when a checkout starts.
+     *
+     * @param units The number of units to reserve.
+     * @return true if the units were reserved, false if too few are available.
+     * @throws IllegalArgumentException if units is negative.
+     */
+    boolean reserve(int units);
+
+    /**
+     * Returns reserved units to the available stock, e.g. when a checkout is
+     * abandoned.
+     *
+     * @param units The number of reserved units to release.
+     * @throws IllegalArgumentException if units is negative.
+     * @throws IllegalStateException if fewer units are reserved.
+     */
+    void release(int units);
+
+    /**
+     * Takes reserved units out of the stock, e.g. when a checkout completes.
+     *
+     * @param units The number of reserved units to commit.
+     * @throws IllegalArgumentException if units is negative.
+     * @throws IllegalStateException if fewer units are reserved.
+     */
+    void commit(int units);
+}
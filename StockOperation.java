@@ -0,0 +1,131 @@
+/**
+ * The StockOperation class describes one item of a batch passed to
+ * Inventory.applyBatch: a restock, a stock removal, a price change or a
+ * quantity change for the device with a given name.
+ * Instances are immutable and created through the static factory methods.
+ */
+public final class StockOperation {
+
+    /**
+     * The kinds of operation a batch can contain.
+     */
+    public enum Type {
+        /** Add units to the stock. */
+        ADD_STOCK,
+        /** Remove units from the stock, if enough are available. */
+        REMOVE_STOCK,
+        /** Set a new price. */
+        SET_PRICE,
+        /** Set a new quantity. */
+        SET_QUANTITY
+    }
+
+    private final Type type;
+    private final String deviceName;
+    private final int quantity;
+    private final double price;
+
+    /**
+     * Constructs an operation.
+     * Time Complexity: O(1)
+     *
+     * @param type       The kind of operation.
+     * @param deviceName The name of the target device.
+     * @param quantity   The quantity argument, if any.
+     * @param price      The price argument, if any.
+     */
+    private StockOperation(Type type, String deviceName, int quantity, double price) {
+        this.type = type;
+        this.deviceName = deviceName;
+        this.quantity = quantity;
+        this.price = price;
+    }
+
+    /**
+     * Creates an operation that adds units to the stock of a device.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The name of the device.
+     * @param quantity   The number of units to add.
+     * @return The operation.
+     */
+    public static StockOperation addStock(String deviceName, int quantity) {
+        return new StockOperation(Type.ADD_STOCK, deviceName, quantity, 0);
+    }
+
+    /**
+     * Creates an operation that removes units from the stock of a device.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The name of the device.
+     * @param quantity   The number of units to remove.
+     * @return The operation.
+     */
+    public static StockOperation removeStock(String deviceName, int quantity) {
+        return new StockOperation(Type.REMOVE_STOCK, deviceName, quantity, 0);
+    }
+
+    /**
+     * Creates an operation that sets the price of a device.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The name of the device.
+     * @param price      The new price.
+     * @return The operation.
+     */
+    public static StockOperation setPrice(String deviceName, double price) {
+        return new StockOperation(Type.SET_PRICE, deviceName, 0, price);
+    }
+
+    /**
+     * Creates an operation that sets the quantity of a device.
+     * Time Complexity: O(1)
+     *
+     * @param deviceName The name of the device.
+     * @param quantity   The new quantity.
+     * @return The operation.
+     */
+    public static StockOperation setQuantity(String deviceName, int quantity) {
+        return new StockOperation(Type.SET_QUANTITY, deviceName, quantity, 0);
+    }
+
+    /**
+     * Gets the kind of operation.
+     * Time Complexity: O(1)
+     *
+     * @return The operation type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the name of the target device.
+     * Time Complexity: O(1)
+     *
+     * @return The device name.
+     */
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    /**
+     * Gets the quantity argument of a stock or quantity operation.
+     * Time Complexity: O(1)
+     *
+     * @return The quantity, or 0 for a price operation.
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Gets the price argument of a price operation.
+     * Time Complexity: O(1)
+     *
+     * @return The price, or 0 for a stock or quantity operation.
+     */
+    public double getPrice() {
+        return price;
+    }
+}
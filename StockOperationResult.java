@@ -0,0 +1,95 @@
+/**
+ * The StockOperationResult class reports the outcome of one StockOperation
+ * applied by Inventory.applyBatch, together with the price and quantity of the
+ * device afterwards.
+ */
+public final class StockOperationResult {
+
+    /**
+     * The possible outcomes of an operation.
+     */
+    public enum Status {
+        /** The operation was applied. */
+        APPLIED,
+        /** No device has the given name. */
+        NOT_FOUND,
+        /**
+         * The removal asked for more units than are available, or the new
+         * quantity is below the reserved units.
+         */
+        INSUFFICIENT_STOCK,
+        /** The argument is out of range, e.g. a negative quantity. */
+        INVALID_ARGUMENT
+    }
+
+    private final StockOperation operation;
+    private final Status status;
+    private final double price;
+    private final int quantity;
+
+    /**
+     * Constructs a result.
+     * Time Complexity: O(1)
+     *
+     * @param operation The operation the result belongs to.
+     * @param status    The outcome.
+     * @param price     The price of the device afterwards, or 0 if not found.
+     * @param quantity  The quantity of the device afterwards, or 0 if not found.
+     */
+    StockOperationResult(StockOperation operation, Status status, double price, int quantity) {
+        this.operation = operation;
+        this.status = status;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    /**
+     * Gets the operation the result belongs to.
+     * Time Complexity: O(1)
+     *
+     * @return The operation.
+     */
+    public StockOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the outcome of the operation.
+     * Time Complexity: O(1)
+     *
+     * @return The status.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Checks whether the operation was applied.
+     * Time Complexity: O(1)
+     *
+     * @return true if the status is APPLIED.
+     */
+    public boolean isApplied() {
+        return status == Status.APPLIED;
+    }
+
+    /**
+     * Gets the price of the device after the operation.
+     * Time Complexity: O(1)
+     *
+     * @return The price, or 0 if the device was not found.
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * Gets the quantity of the device after the operation.
+     * Time Complexity: O(1)
+     *
+     * @return The quantity, or 0 if the device was not found.
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+}
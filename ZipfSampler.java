@@ -0,0 +1,129 @@
+import java.util.SplittableRandom;
+
+/**
+ * The ZipfSampler class draws ranks from 1 to n with Zipf's law: rank k is
+ * drawn with a probability proportional to 1 / k^s, so a few hot ranks take
+ * most of the draws, like the best selling SKUs of a shop. It uses rejection
+ * inversion (Hormann and Derflinger, 1996), which needs O(1) memory and
+ * O(1) expected time per draw for any n, instead of a table of n
+ * probabilities.
+ * A sampler holds no mutable state; the random source is passed to every
+ * draw, so one sampler can be shared by threads with their own sources.
+ */
+final class ZipfSampler {
+
+    private final long n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    /**
+     * Constructs a sampler.
+     * Time Complexity: O(1)
+     *
+     * @param n        The number of ranks, at least 1.
+     * @param exponent The skew s, at least 0; 0 is uniform, around 1 is typical
+     *                 of real catalogs.
+     * @throws IllegalArgumentException if n or the exponent is out of range.
+     */
+    ZipfSampler(long n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("The number of ranks must be at least 1: " + n);
+        }
+        if (!(exponent >= 0)) {
+            throw new IllegalArgumentException("The exponent must not be negative: " + exponent);
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * Draws a rank.
+     * Time Complexity: O(1) expected.
+     *
+     * @param random The random source of the calling thread.
+     * @return A rank from 1, the most frequent, to n.
+     */
+    long next(SplittableRandom random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            long k = (long) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    /**
+     * The unnormalized density, 1 / x^s.
+     * Time Complexity: O(1)
+     *
+     * @param x The point.
+     * @return The density at x.
+     */
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    /**
+     * An antiderivative of h.
+     * Time Complexity: O(1)
+     *
+     * @param x The point.
+     * @return The integral of h up to x, up to a constant.
+     */
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return expm1OverX((1 - exponent) * logX) * logX;
+    }
+
+    /**
+     * The inverse of hIntegral.
+     * Time Complexity: O(1)
+     *
+     * @param x The value of the integral.
+     * @return The point where hIntegral reaches x.
+     */
+    private double hIntegralInverse(double x) {
+        double t = Math.max(x * (1 - exponent), -1);
+        return Math.exp(log1pOverX(t) * x);
+    }
+
+    /**
+     * Computes (e^x - 1) / x, accurately near 0.
+     * Time Complexity: O(1)
+     *
+     * @param x The argument.
+     * @return The value, 1 at x = 0.
+     */
+    private static double expm1OverX(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        }
+        return 1 + x * 0.5 * (1 + x / 3 * (1 + x * 0.25));
+    }
+
+    /**
+     * Computes ln(1 + x) / x, accurately near 0.
+     * Time Complexity: O(1)
+     *
+     * @param x The argument.
+     * @return The value, 1 at x = 0.
+     */
+    private static double log1pOverX(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        }
+        return 1 - x * (0.5 - x * (1.0 / 3 - x * 0.25));
+    }
+}
@@ -0,0 +1,224 @@
+package inventory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The InventoryBenchmark class measures the core Inventory operations at
+ * 1K, 100K and 10M devices, with the devices spread over the categories
+ * uniformly, skewed towards one category, or all in a single category.
+ * Run it with "make bench", which copies the sources into the inventory
+ * package (JMH does not accept benchmarks in the default package) and runs
+ * JMH with the gc profiler, so every result comes with its allocation rate.
+ * The forks use the default heap, so "make bench" runs only the 1K and 100K
+ * sizes; "make bench-large" runs the 10M size in forks with a 12 GB heap.
+ * Additions are measured together with a removal, so the inventory keeps its
+ * size for the whole run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryBenchmark {
+
+    /**
+     * How the devices are spread over the categories.
+     */
+    public enum Distribution {
+        /** Every category equally likely. */
+        UNIFORM,
+        /** Four devices in five are smart phones, the rest uniform. */
+        SKEWED,
+        /** All devices are laptops. */
+        SINGLE
+    }
+
+    private static final int PROBES = 4096; // Must be a power of two
+    private static final Category[] CATEGORIES = Category.values();
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SKEWED", "SINGLE"})
+    public Distribution distribution;
+
+    private Inventory inventory;
+    private String[] presentNames;
+    private String[] missingNames;
+    private Device[] extraDevices;
+    private int cursor;
+    private Path exportFile;
+
+    /**
+     * Fills the inventory and prepares the probes.
+     * Time Complexity: O(n log n)
+     *
+     * @throws IOException if the export file cannot be created.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        inventory = new Inventory();
+        List<Device> batch = new ArrayList<>(100_000);
+        for (int i = 0; i < size; i++) {
+            batch.add(pickCategory(random).createDevice("Device-" + i, 1 + random.nextInt(500_000) / 100.0,
+                    random.nextInt(1000)));
+            if (batch.size() == 100_000 || i == size - 1) {
+                inventory.addDevices(batch);
+                batch.clear();
+            }
+        }
+
+        presentNames = new String[PROBES];
+        missingNames = new String[PROBES];
+        extraDevices = new Device[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            presentNames[i] = "Device-" + random.nextInt(size);
+            missingNames[i] = "Missing-" + i;
+            extraDevices[i] = pickCategory(random).createDevice("Extra-" + i, 1 + random.nextInt(500_000) / 100.0,
+                    random.nextInt(1000));
+        }
+        exportFile = Files.createTempFile("inventory-bench", ".txt");
+    }
+
+    /**
+     * Deletes the export file.
+     * Time Complexity: O(1)
+     *
+     * @throws IOException if the file cannot be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(exportFile);
+    }
+
+    /**
+     * Adds a device and removes it again.
+     * Time Complexity: O(log n + k log k) where k is the length of the name.
+     *
+     * @return The result of the removal.
+     */
+    @Benchmark
+    public InventoryResult addAndRemoveDevice() {
+        Device device = extraDevices[cursor++ & (PROBES - 1)];
+        inventory.addDevices(Collections.singletonList(device));
+        return inventory.removeDevice(device.getName());
+    }
+
+    /**
+     * Looks up a device that exists.
+     * Time Complexity: O(1)
+     *
+     * @return true.
+     */
+    @Benchmark
+    public boolean deviceExistsHit() {
+        return inventory.deviceExists(presentNames[cursor++ & (PROBES - 1)]);
+    }
+
+    /**
+     * Looks up a device that does not exist.
+     * Time Complexity: O(1)
+     *
+     * @return false.
+     */
+    @Benchmark
+    public boolean deviceExistsMiss() {
+        return inventory.deviceExists(missingNames[cursor++ & (PROBES - 1)]);
+    }
+
+    /**
+     * Lists the devices by price while the cached listing is current.
+     * Time Complexity: O(1)
+     *
+     * @return The listing.
+     */
+    @Benchmark
+    public List<Device> sortDevicesByPriceCached() {
+        return inventory.sortDevicesByPrice();
+    }
+
+    /**
+     * Reprices a device, which invalidates the cached listing, then lists the
+     * devices by price.
+     * Time Complexity: O(n)
+     *
+     * @return The listing.
+     */
+    @Benchmark
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 3, time = 5)
+    public List<Device> sortDevicesByPriceAfterUpdate() {
+        String name = presentNames[cursor++ & (PROBES - 1)];
+        inventory.updateDeviceDetails(name, 1 + (cursor & 0xFFFF) / 100.0, 10);
+        return inventory.sortDevicesByPrice();
+    }
+
+    /**
+     * Reads the total inventory value.
+     * Time Complexity: O(1)
+     *
+     * @return The total value.
+     */
+    @Benchmark
+    public double calculateTotalInventoryValue() {
+        return inventory.calculateTotalInventoryValue();
+    }
+
+    /**
+     * Writes the text report that exportInventoryToFile writes, letting an
+     * IOException fail the benchmark instead of returning it in a result.
+     * Time Complexity: O(n)
+     *
+     * @throws IOException if the report cannot be written.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public void exportInventoryToFile() throws IOException {
+        inventory.writeReport(exportFile, InventoryExporter.Format.TEXT);
+    }
+
+    /**
+     * Draws the category of a new device from the distribution.
+     * Time Complexity: O(1)
+     *
+     * @param random The source of randomness.
+     * @return The category.
+     */
+    private Category pickCategory(Random random) {
+        switch (distribution) {
+            case SINGLE:
+                return Category.LAPTOP;
+            case SKEWED:
+                return random.nextInt(5) < 4 ? Category.SMART_PHONE : CATEGORIES[random.nextInt(CATEGORIES.length)];
+            case UNIFORM:
+            default:
+                return CATEGORIES[random.nextInt(CATEGORIES.length)];
+        }
+    }
+}